@@ -0,0 +1,81 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.QuerydslApplication;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 벤치마크 공통. 내장 H2 로 애플리케이션을 띄우고 회원/팀을 적재한다.
+ * 검색 결과 캐시는 끄고(ttl 0) 매번 DB 를 조회하는 비용을 잰다.
+ */
+final class BenchmarkApplication {
+
+  private static final int SEED_CHUNK_SIZE = 1000;
+
+  private BenchmarkApplication() {
+  }
+
+  static ConfigurableApplicationContext start(String... extraArgs) {
+    String[] args = {
+            "--spring.profiles.active=bench",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.properties.hibernate.show_sql=false",
+            "--spring.jpa.properties.hibernate.use_sql_comments=false",
+            "--decorator.datasource.p6spy.enable-logging=false",
+            "--member.search.result-cache.ttl-seconds=0",
+            "--member.n-plus-one.enabled=false",
+            "--logging.level.org.hibernate.type=warn"
+    };
+    String[] allArgs = Arrays.copyOf(args, args.length + extraArgs.length);
+    System.arraycopy(extraArgs, 0, allArgs, args.length, extraArgs.length);
+    return new SpringApplicationBuilder(QuerydslApplication.class)
+            .web(WebApplicationType.NONE)
+            .run(allArgs);
+  }
+
+  /**
+   * memberCount 명의 회원을 teamCount 개 팀에 나눠 적재한다. 나이는 0 ~ 99.
+   */
+  static void seed(ConfigurableApplicationContext context, int memberCount, int teamCount) {
+    EntityManager em = context.getBean(EntityManager.class);
+    TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+    List<Long> teamIds = new ArrayList<>();
+    transactionTemplate.execute(status -> {
+      for (int i = 0; i < teamCount; i++) {
+        Team team = new Team("team" + i);
+        em.persist(team);
+        teamIds.add(team.getId());
+      }
+      return null;
+    });
+
+    for (int from = 0; from < memberCount; from += SEED_CHUNK_SIZE) {
+      int start = from;
+      int end = Math.min(from + SEED_CHUNK_SIZE, memberCount);
+      transactionTemplate.execute(status -> {
+        for (int i = start; i < end; i++) {
+          Member member = new Member("member" + i, i % 100);
+          member.setTeam(em.getReference(Team.class, teamIds.get(i % teamCount)));
+          em.persist(member);
+        }
+        em.flush();
+        em.clear();
+        return null;
+      });
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.PageFetchStrategy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * searchPageComplex 의 content 조회 방식(OFFSET, DEFERRED_JOIN)을 페이지 깊이별로 비교한다.
+ * count 는 count 캐시에 남아 있으므로 사실상 content 쿼리 비용만 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberPageFetchBenchmark {
+
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"100000"})
+  public int memberCount;
+
+  @Param({"100"})
+  public int teamCount;
+
+  @Param({"0", "100", "2000"})
+  public int page;
+
+  @Param({"EMPTY", "AGE_RANGE", "TEAM"})
+  public String shape;
+
+  @Param({"OFFSET", "DEFERRED_JOIN"})
+  public PageFetchStrategy strategy;
+
+  private ConfigurableApplicationContext context;
+  private MemberRepository memberRepository;
+  private MemberSearchCondition condition;
+  private Pageable pageable;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start();
+    memberRepository = context.getBean(MemberRepository.class);
+
+    BenchmarkApplication.seed(context, memberCount, teamCount);
+    condition = condition(shape);
+    pageable = PageRequest.of(page, PAGE_SIZE);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> searchPageComplex() {
+    return memberRepository.searchPageComplex(condition, pageable, strategy);
+  }
+
+  private MemberSearchCondition condition(String shape) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    switch (shape) {
+      case "EMPTY":
+        break;
+      case "AGE_RANGE":
+        condition.setAgeGoe(10);
+        condition.setAgeLoe(89);
+        break;
+      case "TEAM":
+        condition.setTeamName("team" + (teamCount / 2));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown shape: " + shape);
+    }
+    return condition;
+  }
+}
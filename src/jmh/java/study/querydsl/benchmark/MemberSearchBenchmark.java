@@ -0,0 +1,110 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberQueryRepository;
+import study.querydsl.repository.MemberRepository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 회원 검색을 4가지 방식으로 구현한 것을 비교한다.
+ * 내장 H2 에 memberCount 명의 회원을 teamCount 개 팀에 나눠 적재한 뒤 측정한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberSearchBenchmark {
+
+  @Param({"10000"})
+  public int memberCount;
+
+  @Param({"100"})
+  public int teamCount;
+
+  @Param({"EMPTY", "USERNAME", "TEAM", "AGE_RANGE", "FULL"})
+  public String shape;
+
+  private ConfigurableApplicationContext context;
+  private MemberJpaRepository memberJpaRepository;
+  private MemberQueryRepository memberQueryRepository;
+  private MemberRepository memberRepository;
+  private MemberSearchCondition condition;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start();
+
+    memberJpaRepository = context.getBean(MemberJpaRepository.class);
+    memberQueryRepository = context.getBean(MemberQueryRepository.class);
+    memberRepository = context.getBean(MemberRepository.class);
+
+    BenchmarkApplication.seed(context, memberCount, teamCount);
+    condition = condition(shape);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> jpaRepositorySearchByBuilder() {
+    return memberJpaRepository.searchByBuilder(condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> jpaRepositorySearch() {
+    return memberJpaRepository.search(condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> queryRepositorySearch() {
+    return memberQueryRepository.search(condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> repositorySupportSearch() {
+    return memberRepository.search(condition);
+  }
+
+  private MemberSearchCondition condition(String shape) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    switch (shape) {
+      case "EMPTY":
+        break;
+      case "USERNAME":
+        condition.setUsername("member" + (memberCount / 2));
+        break;
+      case "TEAM":
+        condition.setTeamName("team" + (teamCount / 2));
+        break;
+      case "AGE_RANGE":
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(35);
+        break;
+      case "FULL":
+        condition.setUsername("member" + (memberCount / 2));
+        condition.setTeamName("team" + ((memberCount / 2) % teamCount));
+        condition.setAgeGoe(0);
+        condition.setAgeLoe(99);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown shape: " + shape);
+    }
+    return condition;
+  }
+}
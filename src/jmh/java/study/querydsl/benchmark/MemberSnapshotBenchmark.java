@@ -0,0 +1,120 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.snapshot.MemberSnapshotService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 메모리 컬럼 스냅샷 검색과 JPA(querydsl) 검색을 같은 조건으로 비교한다.
+ * count 캐시도 끄고(ttl 0) JPA 쪽이 매번 count 쿼리를 실행하게 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberSnapshotBenchmark {
+
+  @Param({"100000"})
+  public int memberCount;
+
+  @Param({"100"})
+  public int teamCount;
+
+  @Param({"TEAM", "AGE_RANGE", "TEAM_AGE"})
+  public String shape;
+
+  private ConfigurableApplicationContext context;
+  private MemberRepository memberRepository;
+  private MemberSnapshotService snapshotService;
+  private MemberSearchCondition condition;
+  private final Pageable pageable = PageRequest.of(0, 20);
+  // 첫 페이지가 꽉 차야 count 쿼리가 실행되므로 한 건짜리 페이지로 total 만 구한다
+  private final Pageable countOnly = PageRequest.of(0, 1);
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    context = BenchmarkApplication.start(
+            "--member.snapshot.enabled=true",
+            "--member.search.count-cache.ttl-seconds=0");
+    memberRepository = context.getBean(MemberRepository.class);
+    snapshotService = context.getBean(MemberSnapshotService.class);
+
+    BenchmarkApplication.seed(context, memberCount, teamCount);
+    snapshotService.reload();
+    snapshotService.awaitApplied(5, TimeUnit.MINUTES);
+    condition = condition(shape);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> jpaSearch() {
+    return memberRepository.search(condition);
+  }
+
+  @Benchmark
+  public List<MemberTeamDto> snapshotSearch() {
+    return snapshotService.search(condition);
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> jpaSearchPage() {
+    return memberRepository.searchPageComplex(condition, pageable);
+  }
+
+  @Benchmark
+  public Page<MemberTeamDto> snapshotSearchPage() {
+    return snapshotService.searchPage(condition, pageable);
+  }
+
+  @Benchmark
+  public long jpaCount() {
+    return memberRepository.searchPageComplex(condition, countOnly).getTotalElements();
+  }
+
+  @Benchmark
+  public long snapshotCount() {
+    return snapshotService.count(condition);
+  }
+
+  private MemberSearchCondition condition(String shape) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    switch (shape) {
+      case "TEAM":
+        condition.setTeamName("team" + (teamCount / 2));
+        break;
+      case "AGE_RANGE":
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(35);
+        break;
+      case "TEAM_AGE":
+        condition.setTeamName("team" + (teamCount / 2));
+        condition.setAgeGoe(30);
+        condition.setAgeLoe(60);
+        break;
+      default:
+        throw new IllegalArgumentException("unknown shape: " + shape);
+    }
+    return condition;
+  }
+}
@@ -0,0 +1,33 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import study.querydsl.controller.support.AdaptiveConcurrencyLimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 검색과 export 는 지연시간 특성이 달라서 한도를 따로 둔다.
+ */
+@Configuration
+public class ConcurrencyLimitConfig {
+
+  @Bean
+  public AdaptiveConcurrencyLimit interactiveConcurrencyLimit(
+          @Value("${member.concurrency-limit.interactive.initial-limit:20}") int initialLimit,
+          @Value("${member.concurrency-limit.interactive.min-limit:4}") int minLimit,
+          @Value("${member.concurrency-limit.interactive.max-limit:200}") int maxLimit,
+          @Value("${member.concurrency-limit.interactive.latency-threshold-ms:200}") long latencyThresholdMs) {
+    return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs));
+  }
+
+  @Bean
+  public AdaptiveConcurrencyLimit exportConcurrencyLimit(
+          @Value("${member.concurrency-limit.export.initial-limit:2}") int initialLimit,
+          @Value("${member.concurrency-limit.export.min-limit:1}") int minLimit,
+          @Value("${member.concurrency-limit.export.max-limit:8}") int maxLimit,
+          @Value("${member.concurrency-limit.export.latency-threshold-ms:30000}") long latencyThresholdMs) {
+    return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs));
+  }
+}
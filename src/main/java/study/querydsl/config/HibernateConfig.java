@@ -0,0 +1,40 @@
+package study.querydsl.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import study.querydsl.repository.support.BulkStatementInspector;
+import study.querydsl.repository.support.EntityChangeCollector;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@Configuration
+public class HibernateConfig {
+
+  @Bean
+  public BulkStatementInspector bulkStatementInspector(EntityChangeCollector collector) {
+    return new BulkStatementInspector(collector);
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer statementInspectorCustomizer(BulkStatementInspector bulkStatementInspector) {
+    return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, bulkStatementInspector);
+  }
+
+  /**
+   * 2차 캐시 region 설정 파일. jar 로 패키징돼도 찾을 수 있도록 classpath 의 실제 URL 로 넘긴다.
+   */
+  @Bean
+  public HibernatePropertiesCustomizer jcacheConfigCustomizer() {
+    return properties -> {
+      try {
+        properties.put("hibernate.javax.cache.uri", new ClassPathResource("ehcache.xml").getURL().toString());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+}
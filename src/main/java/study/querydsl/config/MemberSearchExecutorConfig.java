@@ -0,0 +1,30 @@
+package study.querydsl.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 페이징 검색에서 content 쿼리와 count 쿼리를 동시에 실행하기 위한 전용 executor.
+ * 큐가 가득 차면 거절하고(AbortPolicy), 호출하는 쪽이 자기 스레드에서 차례로 실행한다.
+ * CallerRunsPolicy 로 호출 스레드에서 돌리면 그 스레드에 묶인 OSIV EntityManager 를 작업이 같이 쓰게 된다.
+ */
+@Configuration
+public class MemberSearchExecutorConfig {
+
+  @Bean
+  public ThreadPoolTaskExecutor memberSearchExecutor(
+          @Value("${member.search.executor.pool-size:8}") int poolSize,
+          @Value("${member.search.executor.queue-capacity:100}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("member-search-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    return executor;
+  }
+}
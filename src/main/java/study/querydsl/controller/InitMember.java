@@ -1,15 +1,25 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Profile("local")
 @Component
@@ -23,22 +33,132 @@ public class InitMember {
     initMemberService.init();
   }
 
+  /**
+   * member.init.* 설정만큼 팀/회원 데이터를 적재한다.
+   * chunk-size 건마다 flush/clear 후 커밋하고, threads 가 2 이상이면 팀 단위로 나눠 병렬로 적재한다.
+   */
+  @Slf4j
   @Component
   static class InitMemberService {
     @PersistenceContext
     private EntityManager em;
 
-    @Transactional
+    private final TransactionTemplate transactionTemplate;
+    private final int memberCount;
+    private final int teamCount;
+    private final int chunkSize;
+    private final int threads;
+
+    private final AtomicLong inserted = new AtomicLong();
+    private long startedAt;
+
+    InitMemberService(PlatformTransactionManager transactionManager,
+                      @Value("${member.init.member-count:100}") int memberCount,
+                      @Value("${member.init.team-count:2}") int teamCount,
+                      @Value("${member.init.chunk-size:1000}") int chunkSize,
+                      @Value("${member.init.threads:1}") int threads) {
+      this.transactionTemplate = new TransactionTemplate(transactionManager);
+      this.memberCount = memberCount;
+      this.teamCount = teamCount;
+      this.chunkSize = chunkSize;
+      this.threads = Math.max(1, Math.min(threads, teamCount));
+    }
+
     public void init() {
-      Team teamA = new Team("teamA");
-      Team teamB = new Team("teamB");
-      em.persist(teamA);
-      em.persist(teamB);
-
-      for (int i = 0; i < 100; i++) {
-        Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-        em.persist(new Member("member" + i, i, selectedTeam));
+      startedAt = System.nanoTime();
+      List<Long> teamIds = initTeams();
+
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> partitions = new ArrayList<>();
+        for (int partition = 0; partition < threads; partition++) {
+          int current = partition;
+          partitions.add(executor.submit(() -> initMembers(teamIds, current)));
+        }
+        for (Future<?> partition : partitions) {
+          partition.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("member init interrupted", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("member init failed", e.getCause());
+      } finally {
+        executor.shutdownNow();
       }
+
+      log.info("member init finished: {} teams, {} members in {} ms ({} rows/s)",
+              teamCount, inserted.get(), elapsedMillis(), rowsPerSecond());
+    }
+
+    private List<Long> initTeams() {
+      List<Long> teamIds = new ArrayList<>(teamCount);
+      for (int from = 0; from < teamCount; from += chunkSize) {
+        int start = from;
+        int end = Math.min(from + chunkSize, teamCount);
+        transactionTemplate.execute(status -> {
+          for (int t = start; t < end; t++) {
+            Team team = new Team(teamName(t));
+            em.persist(team);
+            teamIds.add(team.getId());
+          }
+          em.flush();
+          em.clear();
+          return null;
+        });
+      }
+      return teamIds;
+    }
+
+    /**
+     * i 번째 회원은 i % teamCount 번째 팀 소속. partition 은 자기 몫의 팀에 속한 회원만 적재한다.
+     */
+    private void initMembers(List<Long> teamIds, int partition) {
+      List<Member> chunk = new ArrayList<>(chunkSize);
+      for (int t = partition; t < teamCount; t += threads) {
+        for (int i = t; i < memberCount; i += teamCount) {
+          Member member = new Member("member" + i, i % 100);
+          chunk.add(member);
+          if (chunk.size() == chunkSize) {
+            persistChunk(chunk, teamIds.get(t));
+            chunk.clear();
+          }
+        }
+        if (!chunk.isEmpty()) {
+          persistChunk(chunk, teamIds.get(t));
+          chunk.clear();
+        }
+      }
+    }
+
+    private void persistChunk(List<Member> chunk, Long teamId) {
+      transactionTemplate.execute(status -> {
+        // getReference 로 팀을 조회하지 않고 FK 만 설정 (changeTeam 은 members 컬렉션을 초기화하므로 사용하지 않음)
+        Team team = em.getReference(Team.class, teamId);
+        for (Member member : chunk) {
+          member.setTeam(team);
+          em.persist(member);
+        }
+        em.flush();
+        em.clear();
+        return null;
+      });
+      long total = inserted.addAndGet(chunk.size());
+      if (total / (chunkSize * 10L) != (total - chunk.size()) / (chunkSize * 10L) || total == memberCount) {
+        log.info("member init progress: {}/{} ({} rows/s)", total, memberCount, rowsPerSecond());
+      }
+    }
+
+    private static String teamName(int index) {
+      return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+
+    private long elapsedMillis() {
+      return Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    private long rowsPerSecond() {
+      return inserted.get() * 1000 / elapsedMillis();
     }
   }
 }
@@ -1,15 +1,28 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.PageFetchStrategy;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -18,17 +31,78 @@ public class MemberController {
 
   private final MemberJpaRepository memberJpaRepository;
   private final MemberRepository memberRepository;
+  private final ObjectMapper objectMapper;
 
+  @Value("${member.export.fetch-size:500}")
+  private int exportFetchSize;
+
+  /**
+   * 결과 캐시와 single-flight 를 거친다. (MemberRepositoryImpl.search)
+   */
   @GetMapping("/v1/members")
   public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-    return memberJpaRepository.search(condition);
+    return memberRepository.search(condition);
+  }
+  /**
+   * 검색 결과를 NDJSON(한 줄에 한 건)으로 스트리밍한다.
+   */
+  @GetMapping("/v1/members/export")
+  public void exportMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+    response.setContentType("application/x-ndjson");
+    response.setCharacterEncoding("UTF-8");
+
+    ObjectWriter writer = objectMapper.writerFor(MemberTeamDto.class);
+    OutputStream out = response.getOutputStream();
+    memberJpaRepository.export(condition, exportFetchSize, dto -> {
+      try {
+        out.write(writer.writeValueAsBytes(dto));
+        out.write('\n');
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+    out.flush();
   }
   @GetMapping("/v2/members")
   public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
     return memberRepository.searchPageSimple(condition, pageable);
   }
   @GetMapping("/v3/members")
-  public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-    return memberRepository.searchPageComplex(condition, pageable);
+  public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                            @RequestParam(defaultValue = "false") boolean concurrent,
+                                            @RequestParam(required = false) Integer estimateOver,
+                                            @RequestParam(defaultValue = "OFFSET") PageFetchStrategy strategy) {
+    if (estimateOver != null) {
+      // 상한이 너무 크면 잘라서 쓴다. 1 보다 작으면 400
+      return memberRepository.searchPageEstimated(condition, pageable,
+              Math.min(estimateOver, MemberRepositoryCustom.MAX_ESTIMATE_COUNT));
+    }
+    if (concurrent) {
+      return memberRepository.searchPageConcurrent(condition, pageable);
+    }
+    return memberRepository.searchPageComplex(condition, pageable, strategy);
+  }
+  @GetMapping("/v4/members")
+  public MemberKeysetPage searchMemberV4(MemberSearchCondition condition,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "20") int size) {
+    // page size 처럼 범위를 넘으면 잘라서 쓴다
+    int clamped = Math.max(1, Math.min(size, MemberRepositoryCustom.MAX_KEYSET_SIZE));
+    return memberRepository.searchKeyset(condition, cursor, clamped);
+  }
+  /**
+   * totalElements 가 필요 없는 무한 스크롤용. count 쿼리 없이 한 번만 조회한다.
+   */
+  @GetMapping("/v5/members")
+  public Slice<MemberTeamDto> searchMemberV5(MemberSearchCondition condition, Pageable pageable) {
+    return memberRepository.searchSlice(condition, pageable);
+  }
+
+  /**
+   * 잘못된 cursor, estimateOver 같은 검색 파라미터는 500 대신 400 으로 돌려준다.
+   */
+  @ExceptionHandler(IllegalArgumentException.class)
+  public void badRequest(IllegalArgumentException e, HttpServletResponse response) throws IOException {
+    response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
   }
 }
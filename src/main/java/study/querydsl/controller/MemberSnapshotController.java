@@ -0,0 +1,42 @@
+package study.querydsl.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.snapshot.MemberSnapshotService;
+
+import java.util.Map;
+
+/**
+ * 메모리 스냅샷 검색. DB 를 거치지 않는다. (member.snapshot.enabled=true)
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "member.snapshot.enabled", havingValue = "true")
+public class MemberSnapshotController {
+
+  private final MemberSnapshotService snapshotService;
+
+  @GetMapping("/snapshot/members")
+  public Page<MemberTeamDto> searchMember(MemberSearchCondition condition, Pageable pageable) {
+    return snapshotService.searchPage(condition, pageable);
+  }
+
+  @GetMapping("/snapshot/members/count")
+  public long countMember(MemberSearchCondition condition) {
+    return snapshotService.count(condition);
+  }
+
+  /**
+   * 팀별 회원 수 (facet)
+   */
+  @GetMapping("/snapshot/members/team-counts")
+  public Map<String, Long> countMemberByTeam(MemberSearchCondition condition) {
+    return snapshotService.countByTeam(condition);
+  }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.repository.support.MemberCountCache;
+import study.querydsl.repository.support.MemberSearchQueryCache;
+import study.querydsl.repository.support.MemberSearchResultCache;
+import study.querydsl.repository.support.MemberSearchSingleFlight;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 검색 관련 캐시들과 hibernate 통계 확인용
+ */
+@RestController
+@RequiredArgsConstructor
+public class StatsController {
+
+  private final MemberSearchQueryCache searchQueryCache;
+  private final MemberCountCache countCache;
+  private final MemberSearchResultCache resultCache;
+  private final MemberSearchSingleFlight singleFlight;
+  private final EntityManagerFactory emf;
+
+  @GetMapping("/stats/search-query-cache")
+  public Map<String, Object> searchQueryCache() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("hits", searchQueryCache.getHitCount());
+    stats.put("misses", searchQueryCache.getMissCount());
+    stats.put("compiledShapes", searchQueryCache.getCompiledShapeCount());
+    return stats;
+  }
+
+  @GetMapping("/stats/count-cache")
+  public Map<String, Object> countCache() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("hits", countCache.getHitCount());
+    stats.put("misses", countCache.getMissCount());
+    stats.put("size", countCache.size());
+    return stats;
+  }
+
+  @GetMapping("/stats/result-cache")
+  public Map<String, Object> resultCache() {
+    CacheStats cacheStats = resultCache.stats();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("hitRatio", cacheStats.hitRate());
+    stats.put("hits", cacheStats.hitCount());
+    stats.put("misses", cacheStats.missCount());
+    stats.put("evictions", cacheStats.evictionCount());
+    stats.put("evictedRows", cacheStats.evictionWeight());
+    stats.put("size", resultCache.estimatedSize());
+    return stats;
+  }
+
+  @GetMapping("/stats/single-flight")
+  public Map<String, Object> singleFlight() {
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("leaders", singleFlight.getLeaderCount());
+    stats.put("followers", singleFlight.getFollowerCount());
+    stats.put("timeouts", singleFlight.getTimeoutCount());
+    stats.put("coalescingRatio", singleFlight.getCoalescingRatio());
+    return stats;
+  }
+
+  @GetMapping("/stats/l2-cache")
+  public Map<String, Object> secondLevelCache() {
+    Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("hits", statistics.getSecondLevelCacheHitCount());
+    stats.put("misses", statistics.getSecondLevelCacheMissCount());
+    stats.put("puts", statistics.getSecondLevelCachePutCount());
+    for (String region : statistics.getSecondLevelCacheRegionNames()) {
+      CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+      Map<String, Object> regionStats = new LinkedHashMap<>();
+      regionStats.put("hits", regionStatistics.getHitCount());
+      regionStats.put("misses", regionStatistics.getMissCount());
+      regionStats.put("puts", regionStatistics.getPutCount());
+      regionStats.put("elementsInMemory", regionStatistics.getElementCountInMemory());
+      stats.put(region, regionStats);
+    }
+    return stats;
+  }
+
+  /**
+   * hibernate Statistics. queries 는 총 실행 시간이 긴 순서로 limit 개.
+   */
+  @GetMapping("/stats/hibernate")
+  public Map<String, Object> hibernate(@RequestParam(defaultValue = "20") int limit) {
+    Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    Map<String, Object> stats = new LinkedHashMap<>();
+    stats.put("queryPlanCacheHits", statistics.getQueryPlanCacheHitCount());
+    stats.put("queryPlanCacheMisses", statistics.getQueryPlanCacheMissCount());
+    stats.put("entityLoads", statistics.getEntityLoadCount());
+    stats.put("entityFetches", statistics.getEntityFetchCount());
+    stats.put("collectionLoads", statistics.getCollectionLoadCount());
+    stats.put("collectionFetches", statistics.getCollectionFetchCount());
+    stats.put("flushes", statistics.getFlushCount());
+    stats.put("preparedStatements", statistics.getPrepareStatementCount());
+    stats.put("queryExecutions", statistics.getQueryExecutionCount());
+    stats.put("queryExecutionMaxTime", statistics.getQueryExecutionMaxTime());
+    stats.put("queryExecutionMaxTimeQuery", statistics.getQueryExecutionMaxTimeQueryString());
+
+    String[] queries = statistics.getQueries();
+    stats.put("distinctQueries", queries.length);
+
+    Map<String, Object> queryStats = new LinkedHashMap<>();
+    Arrays.stream(queries)
+            .sorted(Comparator.comparingLong(
+                    (String query) -> statistics.getQueryStatistics(query).getExecutionTotalTime()).reversed())
+            .limit(limit)
+            .forEach(query -> {
+              QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+              Map<String, Object> queryStat = new LinkedHashMap<>();
+              queryStat.put("executions", queryStatistics.getExecutionCount());
+              queryStat.put("avgTime", queryStatistics.getExecutionAvgTime());
+              queryStat.put("maxTime", queryStatistics.getExecutionMaxTime());
+              queryStat.put("rows", queryStatistics.getExecutionRowCount());
+              queryStat.put("planCacheHits", queryStatistics.getPlanCacheHitCount());
+              queryStat.put("planCacheMisses", queryStatistics.getPlanCacheMissCount());
+              queryStats.put(query, queryStat);
+            });
+    stats.put("queries", queryStats);
+    return stats;
+  }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.controller.support;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD 동시 실행 한도.
+ * repository 지연시간이 기준을 넘거나 실패하면 한도를 0.9 배로 줄이고, 기준 안에 끝나면서 한도의 절반 이상을 쓰고 있으면 1 씩 늘린다.
+ * 한도를 넘는 요청은 기다리지 않고 바로 거절한다.
+ * 한 번 줄이면 그 뒤에 시작한 요청의 결과가 나올 때까지 다시 줄이지 않는다. 줄이기 전에 시작한 요청은 이미 줄어든 한도와
+ * 상관없이 느렸던 것이라, 그 결과로 또 줄이면 혼잡 한 번에 한도가 연달아 최소값까지 떨어진다.
+ */
+public class AdaptiveConcurrencyLimit {
+
+  private static final double BACKOFF_RATIO = 0.9;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile double limit;
+  // 한도를 줄일 때마다 증가. 요청이 시작할 때의 값을 Permit 에 담아 둔다
+  private long decreaseEpoch;
+
+  public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThresholdNanos) {
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdNanos = latencyThresholdNanos;
+    this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+  }
+
+  /**
+   * @return 한도를 넘으면 null. 받은 Permit 은 요청이 끝나면 {@link #release} 로 반납한다
+   */
+  public Permit tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= getLimit()) {
+        return null;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return new Permit(currentEpoch());
+      }
+    }
+  }
+
+  /**
+   * @param latencyNanos 요청 중 repository 시간. 음수면(repository 를 호출하지 않음) 한도 조정 없이 반납만 한다
+   * @param dropped 실패한 요청이면 true
+   */
+  public void release(Permit permit, long latencyNanos, boolean dropped) {
+    int current = inFlight.getAndDecrement();
+    if (dropped || latencyNanos >= 0) {
+      onSample(permit, latencyNanos, current, dropped);
+    }
+  }
+
+  private synchronized long currentEpoch() {
+    return decreaseEpoch;
+  }
+
+  private synchronized void onSample(Permit permit, long latencyNanos, int inFlightAtRelease, boolean dropped) {
+    if (permit.epoch != decreaseEpoch) {
+      // 마지막으로 줄이기 전에 시작한 요청
+      return;
+    }
+    if (dropped || latencyNanos > latencyThresholdNanos) {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+      decreaseEpoch++;
+    } else if (inFlightAtRelease * 2 >= limit) {
+      // 한도를 충분히 쓰고 있을 때만 늘린다
+      limit = Math.min(maxLimit, limit + 1);
+    }
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * 한도 안에서 실행 중인 요청 하나.
+   */
+  public static final class Permit {
+    private final long epoch;
+
+    private Permit(long epoch) {
+      this.epoch = epoch;
+    }
+  }
+}
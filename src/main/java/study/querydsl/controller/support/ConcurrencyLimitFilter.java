@@ -0,0 +1,94 @@
+package study.querydsl.controller.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import study.querydsl.repository.support.RepositoryCallStats;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 회원 검색(/v*&#47;members)과 export(/v*&#47;members/export)에 각각 다른 동시 실행 한도를 건다.
+ * 한도를 넘으면 큐에 쌓지 않고 바로 503 + Retry-After 로 응답해서 DB 가 느려져도 톰캣 스레드와 커넥션 풀이 고갈되지 않게 한다.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+  private static final String INTERACTIVE_PATTERN = "/v*/members";
+  private static final String EXPORT_PATTERN = "/v*/members/export";
+
+  private final AntPathMatcher pathMatcher = new AntPathMatcher();
+  private final AdaptiveConcurrencyLimit interactiveLimit;
+  private final AdaptiveConcurrencyLimit exportLimit;
+  private final boolean enabled;
+  private final String retryAfterSeconds;
+  private final Counter interactiveRejected;
+  private final Counter exportRejected;
+
+  public ConcurrencyLimitFilter(@Qualifier("interactiveConcurrencyLimit") AdaptiveConcurrencyLimit interactiveLimit,
+                                @Qualifier("exportConcurrencyLimit") AdaptiveConcurrencyLimit exportLimit,
+                                @Value("${member.concurrency-limit.enabled:true}") boolean enabled,
+                                @Value("${member.concurrency-limit.retry-after-seconds:1}") int retryAfterSeconds,
+                                MeterRegistry registry) {
+    this.interactiveLimit = interactiveLimit;
+    this.exportLimit = exportLimit;
+    this.enabled = enabled;
+    this.retryAfterSeconds = String.valueOf(retryAfterSeconds);
+    this.interactiveRejected = register(registry, "interactive", interactiveLimit);
+    this.exportRejected = register(registry, "export", exportLimit);
+  }
+
+  private static Counter register(MeterRegistry registry, String group, AdaptiveConcurrencyLimit limit) {
+    Gauge.builder("member.concurrency.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+            .tag("group", group)
+            .register(registry);
+    Gauge.builder("member.concurrency.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+            .tag("group", group)
+            .register(registry);
+    return Counter.builder("member.concurrency.rejected")
+            .tag("group", group)
+            .register(registry);
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return !enabled || !(pathMatcher.match(INTERACTIVE_PATTERN, path) || pathMatcher.match(EXPORT_PATTERN, path));
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+          throws ServletException, IOException {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    boolean export = pathMatcher.match(EXPORT_PATTERN, path);
+    AdaptiveConcurrencyLimit limit = export ? exportLimit : interactiveLimit;
+
+    AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire();
+    if (permit == null) {
+      (export ? exportRejected : interactiveRejected).increment();
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+      return;
+    }
+
+    RepositoryCallStats.beginRequest();
+    boolean dropped = true;
+    try {
+      filterChain.doFilter(request, response);
+      dropped = response.getStatus() >= 500;
+    } finally {
+      limit.release(permit, RepositoryCallStats.endRequest(), dropped);
+    }
+  }
+}
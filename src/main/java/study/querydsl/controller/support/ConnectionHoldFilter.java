@@ -0,0 +1,76 @@
+package study.querydsl.controller.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청마다 커넥션 점유 시간(http.connection.hold), SQL 시간(http.connection.sql),
+ * 점유했지만 SQL 을 실행하지 않은 시간(http.connection.idle)을 uri 패턴별로 기록한다.
+ * open-in-view 로 렌더링이 끝날 때까지 커넥션을 잡는 요청은 idle 이 커진다. (early-release 프로파일 참고)
+ */
+@Slf4j
+@Component
+public class ConnectionHoldFilter extends OncePerRequestFilter {
+
+  private final ConnectionHoldProfiler profiler;
+  private final MeterRegistry registry;
+  private final boolean enabled;
+
+  public ConnectionHoldFilter(ConnectionHoldProfiler profiler, MeterRegistry registry,
+                              @Value("${member.connection-profiler.enabled:true}") boolean enabled) {
+    this.profiler = profiler;
+    this.registry = registry;
+    this.enabled = enabled;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+          throws ServletException, IOException {
+    if (!enabled) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    profiler.begin();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ConnectionHoldProfiler.RequestHold hold = profiler.end();
+      if (hold != null && hold.getConnections() > 0) {
+        record(uriOf(request), hold);
+      }
+    }
+  }
+
+  private void record(String uri, ConnectionHoldProfiler.RequestHold hold) {
+    timer("http.connection.hold", uri).record(hold.getHoldNanos(), TimeUnit.NANOSECONDS);
+    timer("http.connection.sql", uri).record(hold.getSqlNanos(), TimeUnit.NANOSECONDS);
+    timer("http.connection.idle", uri).record(hold.getIdleNanos(), TimeUnit.NANOSECONDS);
+    log.debug("{} connections={} hold={}ms sql={}ms", uri, hold.getConnections(),
+            TimeUnit.NANOSECONDS.toMillis(hold.getHoldNanos()), TimeUnit.NANOSECONDS.toMillis(hold.getSqlNanos()));
+  }
+
+  private Timer timer(String name, String uri) {
+    return Timer.builder(name)
+            .tag("uri", uri)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(registry);
+  }
+
+  private static String uriOf(HttpServletRequest request) {
+    Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    return pattern != null ? pattern.toString() : "UNKNOWN";
+  }
+}
@@ -0,0 +1,102 @@
+package study.querydsl.controller.support;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP 요청 하나가 JDBC 커넥션을 잡고 있던 시간과 그중 실제로 SQL 을 실행하고 결과를 읽은 시간을 잰다.
+ * 둘의 차이가 크면 커넥션을 잡은 채로 다른 일(뷰 렌더링, JSON 직렬화 등)을 하고 있다는 뜻이다.
+ * 요청 범위는 {@link ConnectionHoldFilter} 가 지정한다.
+ */
+@Component
+public class ConnectionHoldProfiler extends SimpleJdbcEventListener {
+
+  private static final ThreadLocal<RequestHold> CURRENT = new ThreadLocal<>();
+
+  public void begin() {
+    CURRENT.set(new RequestHold());
+  }
+
+  /**
+   * 요청 범위를 닫는다. 아직 반납되지 않은 커넥션은 지금까지 잡은 것으로 계산한다.
+   */
+  public RequestHold end() {
+    RequestHold hold = CURRENT.get();
+    CURRENT.remove();
+    if (hold == null) {
+      return null;
+    }
+    long now = System.nanoTime();
+    for (Long acquiredAt : hold.open.values()) {
+      hold.holdNanos += now - acquiredAt;
+    }
+    hold.open.clear();
+    return hold;
+  }
+
+  /**
+   * @return 현재 요청에서 아직 반납되지 않은 커넥션 수. 요청 범위 밖이면 0
+   */
+  public int openConnections() {
+    RequestHold hold = CURRENT.get();
+    return hold != null ? hold.open.size() : 0;
+  }
+
+  @Override
+  public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+    RequestHold hold = CURRENT.get();
+    if (hold != null && e == null) {
+      hold.connections++;
+      hold.open.put(connectionInformation.getConnectionId(), System.nanoTime());
+    }
+  }
+
+  @Override
+  public void onAfterConnectionClose(ConnectionInformation connectionInformation, SQLException e) {
+    RequestHold hold = CURRENT.get();
+    if (hold == null) {
+      return;
+    }
+    Long acquiredAt = hold.open.remove(connectionInformation.getConnectionId());
+    if (acquiredAt != null) {
+      hold.holdNanos += System.nanoTime() - acquiredAt;
+    }
+  }
+
+  @Override
+  public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    RequestHold hold = CURRENT.get();
+    if (hold != null) {
+      hold.sqlNanos += timeElapsedNanos;
+    }
+  }
+
+  // 커서로 읽는 export 는 실행보다 결과를 읽는 시간이 길다
+  @Override
+  public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+    RequestHold hold = CURRENT.get();
+    if (hold != null) {
+      hold.sqlNanos += timeElapsedNanos;
+    }
+  }
+
+  @Getter
+  public static class RequestHold {
+    private int connections;
+    private long holdNanos;
+    private long sqlNanos;
+    private final Map<Integer, Long> open = new HashMap<>();
+
+    public long getIdleNanos() {
+      return Math.max(0, holdNanos - sqlNanos);
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package study.querydsl.controller.support;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * HTTP 요청 하나에서 실행된 select 를 정규화한 SQL 모양별로 세고,
+ * 같은 모양이 threshold 를 넘게 반복되면 N+1 로 보고한다.
+ * 요청 범위는 {@link NPlusOneFilter}, 컨트롤러 메소드는 {@link NPlusOneHandlerInterceptor} 가 지정한다.
+ */
+@Slf4j
+@Component
+public class NPlusOneDetector extends SimpleJdbcEventListener {
+
+  private static final Pattern IN_LIST = Pattern.compile("\\bin\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private static final ThreadLocal<RequestLog> CURRENT = new ThreadLocal<>();
+
+  @Getter
+  private final boolean enabled;
+  @Getter
+  private final int threshold;
+  @Getter
+  private final boolean strict;
+
+  public NPlusOneDetector(@Value("${member.n-plus-one.enabled:false}") boolean enabled,
+                          @Value("${member.n-plus-one.threshold:10}") int threshold,
+                          @Value("${member.n-plus-one.strict:false}") boolean strict) {
+    this.enabled = enabled;
+    this.threshold = threshold;
+    this.strict = strict;
+  }
+
+  public void begin(String request) {
+    CURRENT.set(new RequestLog(request));
+  }
+
+  public void handler(String handler) {
+    RequestLog requestLog = CURRENT.get();
+    if (requestLog != null) {
+      requestLog.handler = handler;
+    }
+  }
+
+  /**
+   * 요청 범위를 닫고 threshold 를 넘은 SQL 모양을 돌려준다.
+   */
+  public List<Violation> end() {
+    RequestLog requestLog = CURRENT.get();
+    CURRENT.remove();
+    if (requestLog == null) {
+      return Collections.emptyList();
+    }
+
+    List<Violation> violations = new ArrayList<>();
+    for (Map.Entry<String, Shape> entry : requestLog.shapes.entrySet()) {
+      Shape shape = entry.getValue();
+      if (shape.count > threshold) {
+        Violation violation = new Violation(requestLog.request, requestLog.handler, entry.getKey(), shape.count, shape.callSite);
+        log.warn("N+1 의심: {}", violation);
+        violations.add(violation);
+      }
+    }
+    return violations;
+  }
+
+  @Override
+  public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    RequestLog requestLog = CURRENT.get();
+    if (requestLog == null) {
+      return;
+    }
+    String sql = normalize(statementInformation.getSql());
+    if (!sql.regionMatches(true, 0, "select", 0, 6)) {
+      return;
+    }
+
+    Shape shape = requestLog.shapes.computeIfAbsent(sql, key -> new Shape());
+    shape.count++;
+    // 반복이 처음 확인된 시점에만 스택을 본다
+    if (shape.count == 2) {
+      shape.callSite = callSite();
+    }
+  }
+
+  static String normalize(String sql) {
+    if (sql == null) {
+      return "";
+    }
+    String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+    normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+    normalized = IN_LIST.matcher(normalized).replaceAll("in (?)");
+    normalized = WHITESPACE.matcher(normalized).replaceAll(" ");
+    // use_sql_comments 주석은 모양 비교에서 제외
+    if (normalized.startsWith("/*")) {
+      int end = normalized.indexOf("*/");
+      if (end >= 0) {
+        normalized = normalized.substring(end + 2);
+      }
+    }
+    return normalized.trim();
+  }
+
+  private static String callSite() {
+    for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+      String className = element.getClassName();
+      if (className.startsWith("study.querydsl.")
+              && !className.equals(NPlusOneDetector.class.getName())
+              && !className.startsWith("study.querydsl.repository.support.")
+              && className.indexOf('$') < 0) {
+        return element.toString();
+      }
+    }
+    return "unknown";
+  }
+
+  private static class RequestLog {
+    private final String request;
+    private String handler = "unknown";
+    private final Map<String, Shape> shapes = new HashMap<>();
+
+    private RequestLog(String request) {
+      this.request = request;
+    }
+  }
+
+  private static class Shape {
+    private int count;
+    private String callSite = "unknown";
+  }
+
+  @Getter
+  public static class Violation {
+    private final String request;
+    private final String handler;
+    private final String sql;
+    private final int count;
+    private final String callSite;
+
+    public Violation(String request, String handler, String sql, int count, String callSite) {
+      this.request = request;
+      this.handler = handler;
+      this.sql = sql;
+      this.count = count;
+      this.callSite = callSite;
+    }
+
+    @Override
+    public String toString() {
+      return request + " " + handler + " at " + callSite + " x" + count + " : " + sql;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package study.querydsl.controller.support;
+
+import java.util.List;
+
+/**
+ * strict 모드에서 요청 중 N+1 이 감지되면 던진다. (테스트용)
+ */
+public class NPlusOneException extends IllegalStateException {
+
+  private final List<NPlusOneDetector.Violation> violations;
+
+  public NPlusOneException(List<NPlusOneDetector.Violation> violations) {
+    super("N+1 감지: " + violations);
+    this.violations = violations;
+  }
+
+  public List<NPlusOneDetector.Violation> getViolations() {
+    return violations;
+  }
+}
@@ -0,0 +1,42 @@
+package study.querydsl.controller.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 요청마다 N+1 감지 범위를 연다.
+ */
+@Component
+@RequiredArgsConstructor
+public class NPlusOneFilter extends OncePerRequestFilter {
+
+  private final NPlusOneDetector detector;
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+          throws ServletException, IOException {
+    if (!detector.isEnabled()) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+
+    detector.begin(request.getMethod() + " " + request.getRequestURI());
+    List<NPlusOneDetector.Violation> violations;
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      violations = detector.end();
+    }
+    if (detector.isStrict() && !violations.isEmpty()) {
+      throw new NPlusOneException(violations);
+    }
+  }
+}
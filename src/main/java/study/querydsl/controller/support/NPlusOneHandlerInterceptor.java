@@ -0,0 +1,28 @@
+package study.querydsl.controller.support;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * N+1 보고에 어떤 컨트롤러 메소드에서 발생했는지 남긴다.
+ */
+@Component
+@RequiredArgsConstructor
+public class NPlusOneHandlerInterceptor implements HandlerInterceptor {
+
+  private final NPlusOneDetector detector;
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+    if (handler instanceof HandlerMethod) {
+      HandlerMethod method = (HandlerMethod) handler;
+      detector.handler(method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+    }
+    return true;
+  }
+}
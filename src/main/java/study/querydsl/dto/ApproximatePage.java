@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * totalElements 가 정확한 값이 아닐 수 있는 Page. approximate 가 true 면 total 은 상한값이다.
+ */
+public class ApproximatePage<T> extends PageImpl<T> {
+
+  private final boolean approximate;
+
+  public ApproximatePage(List<T> content, Pageable pageable, long total, boolean approximate) {
+    super(content, pageable, total);
+    this.approximate = approximate;
+  }
+
+  public boolean isApproximate() {
+    return approximate;
+  }
+}
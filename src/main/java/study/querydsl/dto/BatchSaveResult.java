@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 일괄 저장 결과. insert 문 statementCount 건이 batchSize 단위의 JDBC batch batchCount 번으로 나가 실행되었다.
+ * statementCount 와 batchCount 는 p6spy 로 센 실제 JDBC 호출 수다.
+ */
+@Getter
+@ToString
+public class BatchSaveResult {
+
+  private final long statementCount;
+  private final long batchCount;
+  private final int batchSize;
+
+  public BatchSaveResult(long statementCount, long batchCount, int batchSize) {
+    this.statementCount = statementCount;
+    this.batchCount = batchCount;
+    this.batchSize = batchSize;
+  }
+}
@@ -0,0 +1,56 @@
+package study.querydsl.dto;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset 페이징 커서. 마지막으로 읽은 (age, memberId) 를 담고, 클라이언트에는 opaque 한 문자열로 내려준다.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class MemberKeysetCursor {
+
+  private static final String SEPARATOR = ":";
+
+  private final int age;
+  private final Long memberId;
+
+  public MemberKeysetCursor(int age, Long memberId) {
+    this.age = age;
+    this.memberId = memberId;
+  }
+
+  public static MemberKeysetCursor of(MemberTeamDto last) {
+    return new MemberKeysetCursor(last.getAge(), last.getMemberId());
+  }
+
+  public String encode() {
+    String raw = age + SEPARATOR + memberId;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @return 커서가 비어있으면 null (첫 페이지)
+   */
+  public static MemberKeysetCursor decode(String cursor) {
+    if (!StringUtils.hasText(cursor)) {
+      return null;
+    }
+    try {
+      String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      String[] parts = raw.split(SEPARATOR);
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("invalid cursor: " + cursor);
+      }
+      return new MemberKeysetCursor(Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+    }
+  }
+}
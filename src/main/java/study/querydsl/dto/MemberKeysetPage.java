@@ -0,0 +1,19 @@
+package study.querydsl.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class MemberKeysetPage {
+
+  private final List<MemberTeamDto> content;
+  private final String nextCursor;
+  private final boolean hasNext;
+
+  public MemberKeysetPage(List<MemberTeamDto> content, String nextCursor, boolean hasNext) {
+    this.content = content;
+    this.nextCursor = nextCursor;
+    this.hasNext = hasNext;
+  }
+}
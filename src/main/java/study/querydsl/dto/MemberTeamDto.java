@@ -1,16 +1,23 @@
 package study.querydsl.dto;
 
 import com.querydsl.core.annotations.QueryProjection;
-import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 
-@Data
+/**
+ * 검색 결과 캐시와 single-flight 가 여러 호출에 같은 인스턴스를 나눠 주므로 값을 바꿀 수 없게 둔다.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
 public class MemberTeamDto {
 
-  private Long MemberId;
-  private String username;
-  private int age;
-  private Long teamId;
-  private String teamName;
+  private final Long MemberId;
+  private final String username;
+  private final int age;
+  private final Long teamId;
+  private final String teamName;
 
   @QueryProjection
   public MemberTeamDto(Long memberId, String username, int age, Long teamId, String teamName) {
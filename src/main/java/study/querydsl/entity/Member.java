@@ -1,10 +1,18 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        // MemberSearchCondition 조회 경로: 팀 + 나이 범위, 회원명, 나이 범위(keyset 정렬 포함)
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_age", columnList = "age, member_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -12,7 +20,11 @@ import javax.persistence.*;
 public class Member {
 
   @Id
-  @GeneratedValue
+  @GeneratedValue(generator = "member_seq_generator")
+  @GenericGenerator(
+          name = "member_seq_generator",
+          strategy = "study.querydsl.entity.PooledSequenceGenerator",
+          parameters = @Parameter(name = "sequence_name", value = "member_seq"))
   @Column(name = "member_id")
   private Long id;
   private String username;
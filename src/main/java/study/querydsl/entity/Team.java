@@ -1,12 +1,20 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name"))
+// 거의 바뀌지 않고 회원 조회마다 읽히므로 2차 캐시에 둔다 (ehcache.xml)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -15,12 +23,17 @@ public class Team {
 
 
   @Id
-  @GeneratedValue
+  @GeneratedValue(generator = "team_seq_generator")
+  @GenericGenerator(
+          name = "team_seq_generator",
+          strategy = "study.querydsl.entity.PooledSequenceGenerator",
+          parameters = @Parameter(name = "sequence_name", value = "team_seq"))
   @Column(name = "team_id")
   private Long id;
 
   private String name;
 
+  @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
   @OneToMany(mappedBy = "team")
   private List<Member> members = new ArrayList<>();
 
@@ -1,35 +1,57 @@
 package study.querydsl.repository;
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.cfg.AvailableSettings;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.BatchSaveResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.support.JdbcBatchStats;
+import study.querydsl.repository.support.TeamIdCache;
 
 import javax.persistence.EntityManager;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static org.springframework.util.StringUtils.*;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
+import static study.querydsl.repository.support.MemberJoinPlanner.leftJoinTeamIfNeeded;
 
+@Slf4j
 @Repository
 public class MemberJpaRepository {
 
+  // hibernate.jdbc.batch_size 가 설정되지 않았을 때 saveAll 의 flush 단위
+  private static final int DEFAULT_BATCH_SIZE = 50;
+
   private final EntityManager em;
   private final JPAQueryFactory queryFactory;
+  private final TeamIdCache teamIdCache;
 
-  public MemberJpaRepository(EntityManager em) {
+  public MemberJpaRepository(EntityManager em, TeamIdCache teamIdCache) {
     this.em = em;
     this.queryFactory = new JPAQueryFactory(em);
+    this.teamIdCache = teamIdCache;
   }
 
 //  public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory) {
@@ -41,6 +63,51 @@ public class MemberJpaRepository {
     em.persist(member);
   }
 
+  /**
+   * JDBC batch size 단위로 persist 하고 flush/clear 한다. 영속성 컨텍스트가 커지지 않아 대량 저장에도 메모리가 일정하다.
+   * 저장 중 clear 되므로 호출 전에 영속 상태였던 엔티티도 준영속이 된다.
+   * 넘겨받은 Stream 은 다 쓰면 닫는다. JDBC batch 없이 실행된 insert 가 있으면 경고를 남긴다.
+   */
+  @Transactional
+  public BatchSaveResult saveAll(Iterable<Member> members) {
+    return saveAll(StreamSupport.stream(members.spliterator(), false));
+  }
+
+  @Transactional
+  public BatchSaveResult saveAll(Stream<Member> members) {
+    int batchSize = jdbcBatchSize();
+    int pending = 0;
+
+    // 건수는 세지 않고 p6spy 로 실제 addBatch/executeBatch 를 센다
+    try (Stream<Member> closing = members; JdbcBatchStats stats = JdbcBatchStats.open()) {
+      Iterator<Member> iterator = closing.iterator();
+      while (iterator.hasNext()) {
+        em.persist(iterator.next());
+        if (++pending == batchSize) {
+          em.flush();
+          em.clear();
+          pending = 0;
+        }
+      }
+      if (pending > 0) {
+        em.flush();
+        em.clear();
+      }
+
+      if (stats.getUnbatchedStatementCount() > 0) {
+        log.warn("saveAll executed {} of {} statements without JDBC batching. check {} and the id generation strategy",
+                stats.getUnbatchedStatementCount(), stats.getStatementCount(), AvailableSettings.STATEMENT_BATCH_SIZE);
+      }
+      return new BatchSaveResult(stats.getStatementCount(), stats.getBatchCount(), batchSize);
+    }
+  }
+
+  private int jdbcBatchSize() {
+    Object batchSize = em.getEntityManagerFactory().getProperties().get(AvailableSettings.STATEMENT_BATCH_SIZE);
+    int size = batchSize != null ? Integer.parseInt(batchSize.toString()) : 0;
+    return size > 0 ? size : DEFAULT_BATCH_SIZE;
+  }
+
   public Optional<Member> findById(Long id){
     Member findMember = em.find(Member.class, 1L);
     return Optional.ofNullable(findMember);
@@ -52,9 +119,10 @@ public class MemberJpaRepository {
   }
 
   // querydsl
+  @Transactional(readOnly = true)
   public List<Member> findAll_Querydsl() {
-    return queryFactory
-            .selectFrom(member)
+    return readOnly(queryFactory
+            .selectFrom(member))
             .fetch();
   }
 
@@ -66,20 +134,35 @@ public class MemberJpaRepository {
   }
 
   // querydsl
+  @Transactional(readOnly = true)
   public List<Member> findByUsername_querydsl(String username) {
-    return queryFactory
+    return readOnly(queryFactory
             .selectFrom(member)
-            .where(member.username.eq(username))
+            .where(member.username.eq(username)))
             .fetch();
   }
 
+  @Transactional(readOnly = true)
   public List<Member> findByUsername_Querydsl(String username) {
-    return queryFactory
+    return readOnly(queryFactory
             .selectFrom(member)
-            .where(member.username.eq(username))
+            .where(member.username.eq(username)))
             .fetch();
   }
 
+  /**
+   * 읽기 전용 트랜잭션이면 조회한 엔티티를 읽기 전용으로 올리고(스냅샷 없음, dirty checking 제외) 쿼리 전 자동 flush 도 하지 않는다.
+   * 쓰기 트랜잭션에 참여하면 아무 힌트도 주지 않는다. 호출한 쪽이 엔티티를 고치면 그대로 flush 되어야 한다.
+   */
+  private <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      query.setHint(QueryHints.READ_ONLY, true);
+      query.setHint(QueryHints.FLUSH_MODE, FlushMode.MANUAL);
+    }
+    return query;
+  }
+
+  @Transactional(readOnly = true)
   public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
 
     BooleanBuilder builder = new BooleanBuilder();
@@ -110,6 +193,7 @@ public class MemberJpaRepository {
             .fetch();
   }
 
+  @Transactional(readOnly = true)
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
     return queryFactory
             .select(new QMemberTeamDto(
@@ -130,6 +214,47 @@ public class MemberJpaRepository {
             .fetch();
   }
 
+  /**
+   * 결과 전체를 List 로 올리지 않고 forward-only 커서로 한 건씩 consumer 에 넘긴다.
+   * fetchSize 건마다 영속성 컨텍스트를 비워 힙 사용량을 일정하게 유지한다.
+   *
+   * @return 내보낸 건수
+   */
+  @Transactional(readOnly = true)
+  public long export(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer) {
+    CloseableIterator<MemberTeamDto> iterator = queryFactory
+            .select(new QMemberTeamDto(
+                    member.id.as("memberId"),
+                    member.username,
+                    member.age,
+                    team.id.as("teamId"),
+                    team.name.as("teamName")
+            ))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(
+                    usernameEq(condition.getUsername()),
+                    teamNameEq(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe())
+            )
+            .setHint(QueryHints.FETCH_SIZE, fetchSize)
+            .iterate();
+
+    long count = 0;
+    try {
+      while (iterator.hasNext()) {
+        consumer.accept(iterator.next());
+        if (++count % fetchSize == 0) {
+          em.clear();
+        }
+      }
+    } finally {
+      iterator.close();
+    }
+    return count;
+  }
+
   private BooleanExpression ageLoe(Integer ageLoe) {
     return ageLoe != null ? member.age.loe(ageLoe) : null;
   }
@@ -138,25 +263,31 @@ public class MemberJpaRepository {
     return ageGoe != null ? member.age.goe(ageGoe) : null;
   }
 
+  // 팀 id 를 알면 join 없이 FK 로 비교
   private BooleanExpression teamNameEq(String teamName) {
-    return hasText(teamName) ? team.name.eq(teamName) : null;
+    if (!hasText(teamName)) {
+      return null;
+    }
+    Long teamId = teamIdCache.findId(teamName);
+    return teamId != null ? member.team.id.eq(teamId) : team.name.eq(teamName);
   }
 
   private BooleanExpression usernameEq(String username) {
     return hasText(username) ? member.username.eq(username) : null;
   }
 
+  @Transactional(readOnly = true)
   public List<Member> searchMember(MemberSearchCondition condition) {
-    return queryFactory
-            .selectFrom(member)
-            .leftJoin(member.team, team)
-            .where(
-                    usernameEq(condition.getUsername()),
-                    teamNameEq(condition.getTeamName()),
-                    ageBetween(condition.getAgeLoe(), condition.getAgeGoe())
-//                    ageGoe(condition.getAgeGoe()),
-//                    ageLoe(condition.getAgeLoe())
-            )
+    Predicate[] where = {
+            usernameEq(condition.getUsername()),
+            teamNameEq(condition.getTeamName()),
+            ageBetween(condition.getAgeLoe(), condition.getAgeGoe())
+//            ageGoe(condition.getAgeGoe()),
+//            ageLoe(condition.getAgeLoe())
+    };
+    // 엔티티 조회라 team 조건이 없으면 join 불필요
+    return readOnly(leftJoinTeamIfNeeded(queryFactory.selectFrom(member), member, where)
+            .where(where))
             .fetch();
   }
 
@@ -1,63 +1,30 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
-import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
-import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.MemberSearchQueryCache;
 
-import javax.persistence.EntityManager;
 import java.util.List;
 
-import static org.springframework.util.StringUtils.hasText;
-import static study.querydsl.entity.QMember.member;
-import static study.querydsl.entity.QTeam.team;
-
 /**
  * 특정 api 에 맞게, 복잡한 쿼리를 진행할 경우 별도로 injection 받아서 repository 진행
  */
 @Repository
 public class MemberQueryRepository {
-  private final JPAQueryFactory queryFactory;
+  private final MemberSearchQueryCache searchQueryCache;
 
-  public MemberQueryRepository(EntityManager em) {
-    this.queryFactory = new JPAQueryFactory(em);
+  public MemberQueryRepository(MemberSearchQueryCache searchQueryCache) {
+    this.searchQueryCache = searchQueryCache;
   }
 
+  /**
+   * 조건 조합(쿼리 모양)별로 미리 직렬화해둔 JPQL 을 재사용한다.
+   * DTO 프로젝션이라 READ_ONLY 힌트 없이 읽기 전용 트랜잭션만 건다.
+   */
+  @Transactional(readOnly = true)
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
-    return queryFactory
-            .select(new QMemberTeamDto(
-                    member.id.as("memberId"),
-                    member.username,
-                    member.age,
-                    team.id.as("teamId"),
-                    team.name.as("teamName")
-            ))
-            .from(member)
-            .leftJoin(member.team, team)
-            .where(
-                    usernameEq(condition.getUsername()),
-                    teamNameEq(condition.getTeamName()),
-                    ageGoe(condition.getAgeGoe()),
-                    ageLoe(condition.getAgeLoe())
-            )
-            .fetch();
-  }
-
-  private BooleanExpression ageLoe(Integer ageLoe) {
-    return ageLoe != null ? member.age.loe(ageLoe) : null;
-  }
-
-  private BooleanExpression ageGoe(Integer ageGoe) {
-    return ageGoe != null ? member.age.goe(ageGoe) : null;
-  }
-
-  private BooleanExpression teamNameEq(String teamName) {
-    return hasText(teamName) ? team.name.eq(teamName) : null;
-  }
-
-  private BooleanExpression usernameEq(String username) {
-    return hasText(username) ? member.username.eq(username) : null;
+    return searchQueryCache.search(condition);
   }
 }
@@ -2,6 +2,8 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 
@@ -11,4 +13,42 @@ public interface MemberRepositoryCustom {
   List<MemberTeamDto> search(MemberSearchCondition condition);
   Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
   Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+
+  /**
+   * content 조회 방식을 지정한다. DEFERRED_JOIN 은 member_id 순서로 정렬된다.
+   */
+  Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, PageFetchStrategy strategy);
+
+  /**
+   * searchPageComplex 와 같지만 content 쿼리와 count 쿼리를 각각 별도의 읽기 전용 커넥션에서 동시에 실행한다.
+   * 검색 executor 가 가득 차서 거절되면 호출 스레드에서 차례로 실행한다.
+   */
+  Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable);
+
+  /**
+   * searchPageEstimated 가 셀 수 있는 최대 상한
+   */
+  int MAX_ESTIMATE_COUNT = 100_000;
+
+  /**
+   * 결과가 매우 많을 때 정확한 count 대신 상한(maxCount)까지만 센다. 상한을 넘으면 ApproximatePage.isApproximate() 가 true.
+   * maxCount 가 1 ~ {@link #MAX_ESTIMATE_COUNT} 밖이면 IllegalArgumentException.
+   */
+  Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable, int maxCount);
+
+  /**
+   * searchKeyset 한 번에 읽을 수 있는 최대 건수
+   */
+  int MAX_KEYSET_SIZE = 1000;
+
+  /**
+   * offset 대신 마지막으로 읽은 (age, memberId) 커서 이후부터 조회한다. 페이지 깊이와 무관하게 비용이 같다.
+   * size 가 1 ~ {@link #MAX_KEYSET_SIZE} 밖이면 IllegalArgumentException.
+   */
+  MemberKeysetPage searchKeyset(MemberSearchCondition condition, String cursor, int size);
+
+  /**
+   * count 쿼리 없이 pageSize + 1 건을 조회해서 다음 페이지 존재 여부만 알려준다. (무한 스크롤용)
+   */
+  Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable);
 }
@@ -1,47 +1,112 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
+import study.querydsl.dto.ApproximatePage;
+import study.querydsl.dto.MemberKeysetCursor;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.MemberCountCache;
+import study.querydsl.repository.support.MemberSearchResultCache;
+import study.querydsl.repository.support.MemberSearchSingleFlight;
+import study.querydsl.repository.support.TeamIdCache;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.repository.support.MemberJoinPlanner.leftJoinTeamIfNeeded;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 public class MemberRepositoryImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom{
 
+  private final EntityManager em;
   private final JPAQueryFactory queryFactory;
+  private final AsyncTaskExecutor searchExecutor;
+  private final TransactionTemplate readOnlyTransaction;
+  // 캐시 miss 로 DB 를 읽을 때만 여는 읽기 전용 트랜잭션 (flush 생략, read-only 커넥션).
+  // 메소드에 @Transactional 을 달면 캐시 hit 에도 커넥션을 잡으므로 loader 만 감싼다.
+  // 결과가 전부 DTO 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않으므로 READ_ONLY 힌트는 걸지 않는다
+  private final TransactionTemplate readOnlyQuery;
+  private final MemberCountCache countCache;
+  private final MemberSearchResultCache resultCache;
+  private final MemberSearchSingleFlight singleFlight;
+  private final TeamIdCache teamIdCache;
 
 //  public MemberRepositoryImpl(EntityManager em) {
 //    this.queryFactory = new JPAQueryFactory(em);
 //  }
 
-  public MemberRepositoryImpl(EntityManager em) {
+  public MemberRepositoryImpl(EntityManager em,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("memberSearchExecutor") AsyncTaskExecutor searchExecutor,
+                              MemberCountCache countCache,
+                              MemberSearchResultCache resultCache,
+                              MemberSearchSingleFlight singleFlight,
+                              TeamIdCache teamIdCache) {
     super(Member.class);
+    this.em = em;
     this.queryFactory = new JPAQueryFactory(em);
+    this.searchExecutor = searchExecutor;
+    this.countCache = countCache;
+    this.resultCache = resultCache;
+    this.singleFlight = singleFlight;
+    this.teamIdCache = teamIdCache;
+    // 작업 스레드마다 새 읽기 전용 트랜잭션(커넥션)을 연다
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    this.readOnlyQuery = new TransactionTemplate(transactionManager);
+    this.readOnlyQuery.setReadOnly(true);
+  }
+
+  // 결과 캐시 → 동시에 같은 검색이 진행 중이면 그 결과 공유 → DB
+  private <T> T cached(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+    return resultCache.get(method, condition, pageable,
+            () -> singleFlight.execute(method, condition, pageable, () -> readOnly(loader)));
+  }
+
+  private <T> T readOnly(Supplier<T> loader) {
+    return readOnlyQuery.execute(status -> loader.get());
   }
 
   @Override
   public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    return cached("search", condition, null, () -> searchFromDb(condition));
+  }
 
+  private List<MemberTeamDto> searchFromDb(MemberSearchCondition condition) {
     return from(member)
             .leftJoin(member.team, team)
             .where(
@@ -80,7 +145,12 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
 
   @Override
   public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-    QueryResults<MemberTeamDto> results = queryFactory
+    return cached("searchPageSimple", condition, pageable, () -> searchPageSimpleFromDb(condition, pageable));
+  }
+
+  private Page<MemberTeamDto> searchPageSimpleFromDb(MemberSearchCondition condition, Pageable pageable) {
+    // fetchResults() 는 join 을 포함한 count 쿼리를 한 번 더 실행하므로 content 만 조회
+    List<MemberTeamDto> content = queryFactory
             .select(new QMemberTeamDto(
                     member.id.as("memberId"),
                     member.username,
@@ -98,20 +168,18 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
             )
             .offset(pageable.getOffset())
             .limit(pageable.getPageSize())
-            .fetchResults();
+            .fetch();
 
-    List<MemberTeamDto> content = results.getResults();
-    JPAQuery<Member> countQuery = queryFactory
-            .select(member)
-            .from(member)
-            .where(
-                    usernameEq(condition.getUsername()),
-                    teamNameEq(condition.getTeamName()),
-                    ageGoe(condition.getAgeGoe()),
-                    ageLoe(condition.getAgeLoe())
-            );
+    Predicate[] where = {
+            usernameEq(condition.getUsername()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+    };
+    JPAQuery<Member> countQuery = leftJoinTeamIfNeeded(queryFactory.select(member).from(member), member, where)
+            .where(where);
 
-    return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+    return PageableExecutionUtils.getPage(content, pageable, () -> countCache.getTotal(condition, countQuery::fetchCount));
   }
 
   public Page<MemberTeamDto> searchPageSimple2(MemberSearchCondition condition, Pageable pageable) {
@@ -151,23 +219,152 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
 
   @Override
   public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+    return searchPageComplex(condition, pageable, PageFetchStrategy.OFFSET);
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable, PageFetchStrategy strategy) {
+    String method = strategy == PageFetchStrategy.OFFSET ? "searchPageComplex" : "searchPageComplex:" + strategy;
+    return cached(method, condition, pageable, () -> searchPageComplexFromDb(condition, pageable, strategy));
+  }
+
+  private Page<MemberTeamDto> searchPageComplexFromDb(MemberSearchCondition condition, Pageable pageable, PageFetchStrategy strategy) {
+    List<MemberTeamDto> content = strategy == PageFetchStrategy.DEFERRED_JOIN
+            ? getMemberTeamDtosDeferred(condition, pageable)
+            : getMemberTeamDtos(condition, pageable);
+    long total = countCache.getTotal(condition, () -> getTotal(condition));
+    return new PageImpl<>(content, pageable, total);
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable, int maxCount) {
+    if (maxCount < 1 || maxCount > MAX_ESTIMATE_COUNT) {
+      throw new IllegalArgumentException("maxCount must be between 1 and " + MAX_ESTIMATE_COUNT + ": " + maxCount);
+    }
+    return readOnly(() -> searchPageEstimatedFromDb(condition, pageable, maxCount));
+  }
+
+  private Page<MemberTeamDto> searchPageEstimatedFromDb(MemberSearchCondition condition, Pageable pageable, int maxCount) {
     List<MemberTeamDto> content = getMemberTeamDtos(condition, pageable);
-    long total = getTotal(condition);
+
+    Long exactTotal = countCache.getIfPresent(condition);
+    if (exactTotal != null) {
+      return new ApproximatePage<>(content, pageable, exactTotal, false);
+    }
+
+    // count(*) 대신 maxCount + 1 건까지만 센다
+    long counted = countUpTo(condition, maxCount + 1);
+    boolean approximate = counted > maxCount;
+    return new ApproximatePage<>(content, pageable, approximate ? maxCount : counted, approximate);
+  }
+
+  /**
+   * 조건에 맞는 회원을 limit 건까지만 센다. id 를 애플리케이션으로 읽어 오지 않도록 DB 에서 count(*) 한다.
+   * JPQL 은 from 절 서브쿼리와 서브쿼리 limit 을 지원하지 않아 native SQL 로 만든다. 조건은 search 와 같다.
+   */
+  private long countUpTo(MemberSearchCondition condition, int limit) {
+    StringBuilder sql = new StringBuilder("select count(*) from (select m.member_id from member m");
+    List<String> where = new ArrayList<>();
+    List<Object> parameters = new ArrayList<>();
+    if (hasText(condition.getTeamName())) {
+      // teamNameEq 와 같이 팀 id 를 알면 join 없이 FK 로 비교
+      Long teamId = teamIdCache.findId(condition.getTeamName());
+      if (teamId != null) {
+        where.add("m.team_id = ?");
+        parameters.add(teamId);
+      } else {
+        sql.append(" join team t on t.team_id = m.team_id");
+        where.add("t.name = ?");
+        parameters.add(condition.getTeamName());
+      }
+    }
+    if (hasText(condition.getUsername())) {
+      where.add("m.username = ?");
+      parameters.add(condition.getUsername());
+    }
+    if (condition.getAgeGoe() != null) {
+      where.add("m.age >= ?");
+      parameters.add(condition.getAgeGoe());
+    }
+    if (condition.getAgeLoe() != null) {
+      where.add("m.age <= ?");
+      parameters.add(condition.getAgeLoe());
+    }
+    if (!where.isEmpty()) {
+      sql.append(" where ").append(String.join(" and ", where));
+    }
+    sql.append(" limit ?) limited");
+    parameters.add(limit);
+
+    Query query = em.createNativeQuery(sql.toString());
+    for (int i = 0; i < parameters.size(); i++) {
+      query.setParameter(i + 1, parameters.get(i));
+    }
+    return ((Number) query.getSingleResult()).longValue();
+  }
+
+  @Override
+  public Page<MemberTeamDto> searchPageConcurrent(MemberSearchCondition condition, Pageable pageable) {
+    Future<List<MemberTeamDto>> contentFuture;
+    try {
+      contentFuture = searchExecutor.submit(
+              () -> readOnlyTransaction.execute(status -> getMemberTeamDtos(condition, pageable)));
+    } catch (TaskRejectedException e) {
+      // executor 가 가득 차면 호출 스레드에서 차례로 실행한다
+      return readOnly(() -> searchPageComplexFromDb(condition, pageable, PageFetchStrategy.OFFSET));
+    }
+
+    Future<Long> totalFuture;
+    try {
+      totalFuture = searchExecutor.submit(
+              () -> readOnlyTransaction.execute(status -> countCache.getTotal(condition, () -> getTotal(condition))));
+    } catch (TaskRejectedException e) {
+      totalFuture = null;
+    }
+
+    List<MemberTeamDto> content;
+    try {
+      content = await(contentFuture);
+    } catch (RuntimeException e) {
+      // content 가 실패하면 count 결과는 필요 없다
+      if (totalFuture != null) {
+        totalFuture.cancel(true);
+      }
+      throw e;
+    }
+    long total = totalFuture != null
+            ? await(totalFuture)
+            : readOnly(() -> countCache.getTotal(condition, () -> getTotal(condition)));
     return new PageImpl<>(content, pageable, total);
   }
 
+  private static <T> T await(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("search interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
   private long getTotal(MemberSearchCondition condition) {
-    long total = queryFactory
-            .select(member)
-            .from(member)
-//            .leftJoin(member.team, team)
-            .where(
-                    usernameEq(condition.getUsername()),
-                    teamNameEq(condition.getTeamName()),
-                    ageGoe(condition.getAgeGoe()),
-                    ageLoe(condition.getAgeLoe()),
-                    condition(condition.getUsername(), member.username::eq)
-            )
+    Predicate[] where = {
+            usernameEq(condition.getUsername()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe()),
+            condition(condition.getUsername(), member.username::eq)
+    };
+    // team 조건이 있을 때만 join
+    long total = leftJoinTeamIfNeeded(queryFactory.select(member).from(member), member, where)
+            .where(where)
             .fetchCount();
     return total;
   }
@@ -180,6 +377,10 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
   }
 
   private List<MemberTeamDto> getMemberTeamDtos(MemberSearchCondition condition, Pageable pageable) {
+    return getMemberTeamDtos(condition, pageable.getOffset(), pageable.getPageSize());
+  }
+
+  private List<MemberTeamDto> getMemberTeamDtos(MemberSearchCondition condition, long offset, long limit) {
     List<MemberTeamDto> content = queryFactory
             .select(new QMemberTeamDto(
                     member.id.as("memberId"),
@@ -196,12 +397,121 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
                     ageGoe(condition.getAgeGoe()),
                     ageLoe(condition.getAgeLoe())
             )
+            .offset(offset)
+            .limit(limit)
+            .fetch();
+    return content;
+  }
+
+  /**
+   * 1. 조건에 맞는 member_id 만 offset/limit 으로 고른다. (team 조건이 없으면 member 인덱스만 읽는다)
+   * 2. 고른 id 들만 team 과 join 해서 projection 하고 1 의 순서로 되돌린다.
+   */
+  private List<MemberTeamDto> getMemberTeamDtosDeferred(MemberSearchCondition condition, Pageable pageable) {
+    Predicate[] where = {
+            usernameEq(condition.getUsername()),
+            teamNameEq(condition.getTeamName()),
+            ageGoe(condition.getAgeGoe()),
+            ageLoe(condition.getAgeLoe())
+    };
+    List<Long> ids = leftJoinTeamIfNeeded(queryFactory.select(member.id).from(member), member.id, where)
+            .where(where)
+            .orderBy(member.id.asc())
             .offset(pageable.getOffset())
             .limit(pageable.getPageSize())
             .fetch();
+    if (ids.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<MemberTeamDto> rows = queryFactory
+            .select(new QMemberTeamDto(
+                    member.id.as("memberId"),
+                    member.username,
+                    member.age,
+                    team.id.as("teamId"),
+                    team.name.as("teamName")
+            ))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(member.id.in(ids))
+            .fetch();
+
+    Map<Long, MemberTeamDto> byId = new HashMap<>();
+    for (MemberTeamDto row : rows) {
+      byId.put(row.getMemberId(), row);
+    }
+    List<MemberTeamDto> content = new ArrayList<>(ids.size());
+    for (Long id : ids) {
+      MemberTeamDto row = byId.get(id);
+      if (row != null) {
+        content.add(row);
+      }
+    }
     return content;
   }
 
+  @Override
+  public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, Pageable pageable) {
+    return cached("searchSlice", condition, pageable, () -> searchSliceFromDb(condition, pageable));
+  }
+
+  private Slice<MemberTeamDto> searchSliceFromDb(MemberSearchCondition condition, Pageable pageable) {
+    // 다음 페이지 존재 여부를 알기 위해 pageSize + 1 건 조회
+    List<MemberTeamDto> rows = getMemberTeamDtos(condition, pageable.getOffset(), pageable.getPageSize() + 1);
+
+    boolean hasNext = rows.size() > pageable.getPageSize();
+    List<MemberTeamDto> content = hasNext ? new ArrayList<>(rows.subList(0, pageable.getPageSize())) : rows;
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  @Override
+  public MemberKeysetPage searchKeyset(MemberSearchCondition condition, String cursor, int size) {
+    if (size < 1 || size > MAX_KEYSET_SIZE) {
+      throw new IllegalArgumentException("size must be between 1 and " + MAX_KEYSET_SIZE + ": " + size);
+    }
+    MemberKeysetCursor after = MemberKeysetCursor.decode(cursor);
+    return readOnly(() -> searchKeysetFromDb(condition, after, size));
+  }
+
+  private MemberKeysetPage searchKeysetFromDb(MemberSearchCondition condition, MemberKeysetCursor after, int size) {
+
+    // 다음 페이지 존재 여부를 알기 위해 size + 1 건 조회
+    List<MemberTeamDto> rows = queryFactory
+            .select(new QMemberTeamDto(
+                    member.id.as("memberId"),
+                    member.username,
+                    member.age,
+                    team.id.as("teamId"),
+                    team.name.as("teamName")
+            ))
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(
+                    usernameEq(condition.getUsername()),
+                    teamNameEq(condition.getTeamName()),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe()),
+                    keysetAfter(after)
+            )
+            .orderBy(member.age.asc(), member.id.asc())
+            .limit(size + 1)
+            .fetch();
+
+    boolean hasNext = rows.size() > size;
+    List<MemberTeamDto> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+    String nextCursor = hasNext ? MemberKeysetCursor.of(content.get(content.size() - 1)).encode() : null;
+    return new MemberKeysetPage(content, nextCursor, hasNext);
+  }
+
+  private BooleanExpression keysetAfter(MemberKeysetCursor after) {
+    if (after == null) {
+      return null;
+    }
+    return member.age.gt(after.getAge())
+            .or(member.age.eq(after.getAge()).and(member.id.gt(after.getMemberId())));
+  }
+
   private BooleanExpression ageLoe(Integer ageLoe) {
     return ageLoe != null ? member.age.loe(ageLoe) : null;
   }
@@ -210,8 +520,13 @@ public class MemberRepositoryImpl extends QuerydslRepositorySupport implements M
     return ageGoe != null ? member.age.goe(ageGoe) : null;
   }
 
+  // 팀 id 를 알면 join 없이 FK 로 비교
   private BooleanExpression teamNameEq(String teamName) {
-    return hasText(teamName) ? team.name.eq(teamName) : null;
+    if (!hasText(teamName)) {
+      return null;
+    }
+    Long teamId = teamIdCache.findId(teamName);
+    return teamId != null ? member.team.id.eq(teamId) : team.name.eq(teamName);
   }
 
   private BooleanExpression usernameEq(String username) {
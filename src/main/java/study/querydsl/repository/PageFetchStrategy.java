@@ -0,0 +1,15 @@
+package study.querydsl.repository;
+
+/**
+ * offset 페이징 content 조회 방식
+ */
+public enum PageFetchStrategy {
+  /**
+   * team join 을 포함한 projection 에 바로 offset/limit. 건너뛰는 row 도 전부 만든다.
+   */
+  OFFSET,
+  /**
+   * member_id 만 offset/limit 으로 먼저 고른 뒤 그 id 들만 join 해서 projection. 깊은 페이지에서 유리하다.
+   */
+  DEFERRED_JOIN
+}
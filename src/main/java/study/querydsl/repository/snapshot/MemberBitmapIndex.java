@@ -0,0 +1,117 @@
+package study.querydsl.repository.snapshot;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link MemberSnapshot} ordinal 위의 압축 bitmap 인덱스. 팀 코드마다, 나이 구간(AGE_BUCKET_WIDTH 살)마다 bitmap 하나.
+ * 팀/나이 조건은 bitmap OR/AND 로, 개수는 cardinality(popcount)로 구한다.
+ * 구간 경계에 걸친 나이 조건만 해당 구간의 ordinal 을 나이 컬럼으로 다시 확인한다.
+ * 스레드 안전하지 않다. MemberSnapshot 의 lock 안에서만 쓴다.
+ */
+class MemberBitmapIndex {
+
+  static final int AGE_BUCKET_WIDTH = 10;
+
+  private final RoaringBitmap live = new RoaringBitmap();
+  private RoaringBitmap[] byTeamCode = new RoaringBitmap[16];
+  private final TreeMap<Integer, RoaringBitmap> byAgeBucket = new TreeMap<>();
+
+  void add(int ordinal, int age, int teamCode) {
+    live.add(ordinal);
+    bucket(age).add(ordinal);
+    if (teamCode >= 0) {
+      team(teamCode).add(ordinal);
+    }
+  }
+
+  void remove(int ordinal, int age, int teamCode) {
+    live.remove(ordinal);
+    RoaringBitmap ageBucket = byAgeBucket.get(bucketOf(age));
+    if (ageBucket != null) {
+      ageBucket.remove(ordinal);
+    }
+    if (teamCode >= 0 && teamCode < byTeamCode.length && byTeamCode[teamCode] != null) {
+      byTeamCode[teamCode].remove(ordinal);
+    }
+  }
+
+  /**
+   * @param teamMask 팀 조건이 없으면 null
+   * @return 조건에 맞는 ordinal. 조건이 없으면 live 자체를 돌려주므로 수정하면 안 된다
+   */
+  RoaringBitmap select(boolean[] teamMask, int minAge, int maxAge, int[] ages) {
+    RoaringBitmap result = live;
+    if (teamMask != null) {
+      RoaringBitmap teams = new RoaringBitmap();
+      for (int code = 0; code < teamMask.length && code < byTeamCode.length; code++) {
+        if (teamMask[code] && byTeamCode[code] != null) {
+          teams.or(byTeamCode[code]);
+        }
+      }
+      result = RoaringBitmap.and(result, teams);
+    }
+    if (minAge != Integer.MIN_VALUE || maxAge != Integer.MAX_VALUE) {
+      result = RoaringBitmap.and(result, ageRange(minAge, maxAge, ages));
+    }
+    return result;
+  }
+
+  /**
+   * 팀 코드별로 base 와 겹치는 개수. (팀 facet)
+   */
+  long[] countByTeamCode(RoaringBitmap base, int teamCount) {
+    long[] counts = new long[teamCount];
+    for (int code = 0; code < teamCount && code < byTeamCode.length; code++) {
+      if (byTeamCode[code] != null) {
+        counts[code] = RoaringBitmap.andCardinality(byTeamCode[code], base);
+      }
+    }
+    return counts;
+  }
+
+  private RoaringBitmap ageRange(int minAge, int maxAge, int[] ages) {
+    RoaringBitmap range = new RoaringBitmap();
+    for (Map.Entry<Integer, RoaringBitmap> entry : byAgeBucket.subMap(bucketOf(minAge), true, bucketOf(maxAge), true).entrySet()) {
+      long bucketStart = (long) entry.getKey() * AGE_BUCKET_WIDTH;
+      long bucketEnd = bucketStart + AGE_BUCKET_WIDTH - 1;
+      RoaringBitmap bucket = entry.getValue();
+      if (bucketStart >= minAge && bucketEnd <= maxAge) {
+        range.or(bucket);
+        continue;
+      }
+      // 경계 구간은 나이를 직접 확인
+      IntIterator ordinals = bucket.getIntIterator();
+      while (ordinals.hasNext()) {
+        int ordinal = ordinals.next();
+        int age = ages[ordinal];
+        if (age >= minAge && age <= maxAge) {
+          range.add(ordinal);
+        }
+      }
+    }
+    return range;
+  }
+
+  private RoaringBitmap bucket(int age) {
+    return byAgeBucket.computeIfAbsent(bucketOf(age), key -> new RoaringBitmap());
+  }
+
+  private RoaringBitmap team(int teamCode) {
+    if (teamCode >= byTeamCode.length) {
+      byTeamCode = Arrays.copyOf(byTeamCode, Math.max(teamCode + 1, byTeamCode.length * 2));
+    }
+    if (byTeamCode[teamCode] == null) {
+      byTeamCode[teamCode] = new RoaringBitmap();
+    }
+    return byTeamCode[teamCode];
+  }
+
+  private static int bucketOf(int age) {
+    return Math.floorDiv(age, AGE_BUCKET_WIDTH);
+  }
+}
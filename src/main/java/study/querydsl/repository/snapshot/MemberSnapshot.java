@@ -0,0 +1,368 @@
+package study.querydsl.repository.snapshot;
+
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.util.StringUtils;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 회원을 컬럼별 primitive 배열로 들고 있는 메모리 스냅샷.
+ * 회원 한 명 = 배열의 한 칸(ordinal). id 는 long[], 나이는 int[], 팀은 사전 코드 int[], 회원명은 사전에서 꺼낸 같은 String 인스턴스.
+ * 검색은 배열을 앞에서부터 훑는 루프라 엔티티도 박싱도 없다. 결과 DTO 는 조건에 맞은 칸만 만든다.
+ * 삭제된 칸은 비워 두고(deleted) 다시 쓰지 않는다. 결과 순서는 ordinal 순서 (적재 시 member_id 순, 이후 insert 순).
+ * 팀/나이 조건이 있으면 {@link MemberBitmapIndex} 로 후보 ordinal 만 훑고, 회원명 조건이 없는 count 는 bitmap cardinality 로 끝낸다.
+ */
+public class MemberSnapshot {
+
+  private static final int NO_TEAM = -1;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // 회원 컬럼
+  private int size;
+  private long[] ids = new long[INITIAL_CAPACITY];
+  private int[] ages = new int[INITIAL_CAPACITY];
+  private int[] teamCodes = new int[INITIAL_CAPACITY];
+  private String[] usernames = new String[INITIAL_CAPACITY];
+  private boolean[] deleted = new boolean[INITIAL_CAPACITY];
+  private final Map<Long, Integer> ordinalById = new HashMap<>();
+  private int liveCount;
+  private final MemberBitmapIndex index = new MemberBitmapIndex();
+
+  // 회원명 사전. 같은 이름은 같은 인스턴스라 검색 때 == 로 비교한다
+  private final Map<String, String> usernameDictionary = new HashMap<>();
+
+  // 팀 사전: 코드 = 배열 index
+  private int teamCount;
+  private long[] teamIds = new long[16];
+  private String[] teamNames = new String[16];
+  private final Map<Long, Integer> teamCodeById = new HashMap<>();
+
+  public void putTeam(long teamId, String name) {
+    lock.writeLock().lock();
+    try {
+      teamNames[teamCode(teamId)] = name;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void putMember(long memberId, String username, int age, Long teamId) {
+    lock.writeLock().lock();
+    try {
+      Integer ordinal = ordinalById.get(memberId);
+      int i;
+      if (ordinal != null) {
+        i = ordinal;
+        index.remove(i, ages[i], teamCodes[i]);
+      } else {
+        i = append(memberId);
+      }
+      ages[i] = age;
+      usernames[i] = internUsername(username);
+      teamCodes[i] = teamId != null ? teamCode(teamId) : NO_TEAM;
+      index.add(i, ages[i], teamCodes[i]);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void removeMember(long memberId) {
+    lock.writeLock().lock();
+    try {
+      Integer ordinal = ordinalById.remove(memberId);
+      if (ordinal != null) {
+        index.remove(ordinal, ages[ordinal], teamCodes[ordinal]);
+        deleted[ordinal] = true;
+        usernames[ordinal] = null;
+        liveCount--;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      Filter filter = filter(condition);
+      List<MemberTeamDto> content = new ArrayList<>();
+      if (filter == null) {
+        return content;
+      }
+      IntIterator candidates = candidates(filter);
+      while (candidates.hasNext()) {
+        int i = candidates.next();
+        if (filter.test(i)) {
+          content.add(dto(i));
+        }
+      }
+      return content;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * content 와 total 을 한 번 훑어서 같이 구한다.
+   */
+  public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+    lock.readLock().lock();
+    try {
+      Filter filter = filter(condition);
+      List<MemberTeamDto> content = new ArrayList<>(pageable.getPageSize());
+      long total = 0;
+      if (filter != null) {
+        long from = pageable.getOffset();
+        long to = from + pageable.getPageSize();
+        IntIterator candidates = candidates(filter);
+        while (candidates.hasNext()) {
+          int i = candidates.next();
+          if (filter.test(i)) {
+            if (total >= from && total < to) {
+              content.add(dto(i));
+            }
+            total++;
+          }
+        }
+      }
+      return new PageImpl<>(content, pageable, total);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public long count(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      Filter filter = filter(condition);
+      if (filter == null) {
+        return 0;
+      }
+      if (filter.isIndexed() && filter.username == null) {
+        return filter.select().getCardinality();
+      }
+      long count = 0;
+      IntIterator candidates = candidates(filter);
+      while (candidates.hasNext()) {
+        if (filter.test(candidates.next())) {
+          count++;
+        }
+      }
+      return count;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * 조건에 맞는 회원 수를 팀 이름별로 센다. 회원이 없는 팀은 빠진다.
+   * 회원명 조건이 없으면 bitmap 교집합 크기로 세고, 있으면 후보를 훑으면서 센다.
+   */
+  public Map<String, Long> countByTeam(MemberSearchCondition condition) {
+    lock.readLock().lock();
+    try {
+      Map<String, Long> counts = new LinkedHashMap<>();
+      Filter filter = filter(condition);
+      if (filter == null) {
+        return counts;
+      }
+      long[] byCode;
+      if (filter.username == null) {
+        byCode = index.countByTeamCode(filter.select(), teamCount);
+      } else {
+        byCode = new long[teamCount];
+        IntIterator candidates = candidates(filter);
+        while (candidates.hasNext()) {
+          int i = candidates.next();
+          if (filter.test(i) && teamCodes[i] != NO_TEAM) {
+            byCode[teamCodes[i]]++;
+          }
+        }
+      }
+      for (int code = 0; code < teamCount; code++) {
+        if (byCode[code] > 0) {
+          counts.merge(String.valueOf(teamNames[code]), byCode[code], Long::sum);
+        }
+      }
+      return counts;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return liveCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return 아무것도 맞을 수 없는 조건이면 null
+   */
+  private Filter filter(MemberSearchCondition condition) {
+    String username = null;
+    if (StringUtils.hasText(condition.getUsername())) {
+      username = usernameDictionary.get(condition.getUsername());
+      if (username == null) {
+        return null;
+      }
+    }
+
+    boolean[] teamMask = null;
+    if (StringUtils.hasText(condition.getTeamName())) {
+      teamMask = new boolean[teamCount];
+      boolean any = false;
+      for (int code = 0; code < teamCount; code++) {
+        if (condition.getTeamName().equals(teamNames[code])) {
+          teamMask[code] = true;
+          any = true;
+        }
+      }
+      if (!any) {
+        return null;
+      }
+    }
+
+    int minAge = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+    int maxAge = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+    if (minAge > maxAge) {
+      return null;
+    }
+    return new Filter(username, teamMask, minAge, maxAge);
+  }
+
+  // 팀/나이 조건이 있으면 bitmap 으로 고른 ordinal, 없으면 전체
+  private IntIterator candidates(Filter filter) {
+    return filter.isIndexed() ? filter.select().getIntIterator() : new ScanIterator(0, size);
+  }
+
+  private MemberTeamDto dto(int i) {
+    int teamCode = teamCodes[i];
+    return teamCode == NO_TEAM
+            ? new MemberTeamDto(ids[i], usernames[i], ages[i], null, null)
+            : new MemberTeamDto(ids[i], usernames[i], ages[i], teamIds[teamCode], teamNames[teamCode]);
+  }
+
+  private int append(long memberId) {
+    if (size == ids.length) {
+      int capacity = size * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      ages = Arrays.copyOf(ages, capacity);
+      teamCodes = Arrays.copyOf(teamCodes, capacity);
+      usernames = Arrays.copyOf(usernames, capacity);
+      deleted = Arrays.copyOf(deleted, capacity);
+    }
+    int i = size++;
+    ids[i] = memberId;
+    ordinalById.put(memberId, i);
+    liveCount++;
+    return i;
+  }
+
+  private String internUsername(String username) {
+    if (username == null) {
+      return null;
+    }
+    String interned = usernameDictionary.putIfAbsent(username, username);
+    return interned != null ? interned : username;
+  }
+
+  private int teamCode(long teamId) {
+    Integer code = teamCodeById.get(teamId);
+    if (code != null) {
+      return code;
+    }
+    if (teamCount == teamIds.length) {
+      teamIds = Arrays.copyOf(teamIds, teamCount * 2);
+      teamNames = Arrays.copyOf(teamNames, teamCount * 2);
+    }
+    teamIds[teamCount] = teamId;
+    teamCodeById.put(teamId, teamCount);
+    return teamCount++;
+  }
+
+  /**
+   * 한 번의 검색 동안 고정된 조건. test 는 컬럼 배열만 읽는다.
+   */
+  private final class Filter {
+    private final String username;
+    private final boolean[] teamMask;
+    private final int minAge;
+    private final int maxAge;
+
+    private Filter(String username, boolean[] teamMask, int minAge, int maxAge) {
+      this.username = username;
+      this.teamMask = teamMask;
+      this.minAge = minAge;
+      this.maxAge = maxAge;
+    }
+
+    private boolean isIndexed() {
+      return teamMask != null || minAge != Integer.MIN_VALUE || maxAge != Integer.MAX_VALUE;
+    }
+
+    private RoaringBitmap select() {
+      return index.select(teamMask, minAge, maxAge, ages);
+    }
+
+    private boolean test(int i) {
+      if (deleted[i]) {
+        return false;
+      }
+      int age = ages[i];
+      if (age < minAge || age > maxAge) {
+        return false;
+      }
+      if (teamMask != null) {
+        int teamCode = teamCodes[i];
+        if (teamCode == NO_TEAM || !teamMask[teamCode]) {
+          return false;
+        }
+      }
+      return username == null || usernames[i] == username;
+    }
+  }
+
+  private static final class ScanIterator implements IntIterator {
+    private int next;
+    private final int end;
+
+    private ScanIterator(int next, int end) {
+      this.next = next;
+      this.end = end;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next < end;
+    }
+
+    @Override
+    public int next() {
+      return next++;
+    }
+
+    @Override
+    public IntIterator clone() {
+      return new ScanIterator(next, end);
+    }
+  }
+}
@@ -0,0 +1,257 @@
+package study.querydsl.repository.snapshot;
+
+import com.mysema.commons.lang.CloseableIterator;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EntityChangedEvent;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 대시보드처럼 읽기가 대부분인 곳에서 DB 대신 {@link MemberSnapshot} 으로 검색한다. member.snapshot.enabled=true 일 때만 뜬다.
+ * 기동 시 전부 읽어 오고, 이후에는 커밋된 트랜잭션에서 바뀐 Member/Team id 만 DB 에서 다시 읽어 반영한다.
+ * bulk 연산처럼 무엇이 바뀌었는지 모르면 전부 다시 읽는다.
+ * 적재와 변경 반영은 전용 스레드 하나에서 순서대로 실행되고, 요청 스레드는 변경을 큐에 넣기만 한다.
+ * 적재 도중 들어온 변경은 새 스냅샷에 먼저 반영한 뒤 교체하므로 빠지는 변경이 없다.
+ * 커밋 후에 반영하므로 방금 커밋한 변경은 잠깐 늦게 보일 수 있다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.snapshot.enabled", havingValue = "true")
+public class MemberSnapshotService {
+
+  // IN 절 하나에 넣는 id 수
+  private static final int REFRESH_CHUNK_SIZE = 1000;
+
+  private final EntityManagerFactory emf;
+  private final int fetchSize;
+  private volatile MemberSnapshot snapshot = new MemberSnapshot();
+  // 아직 반영하지 않은 커밋된 변경. worker 스레드만 꺼낸다
+  private final Queue<EntityChangedEvent> pending = new ConcurrentLinkedQueue<>();
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "member-snapshot");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public MemberSnapshotService(EntityManagerFactory emf,
+                               @Value("${member.snapshot.fetch-size:1000}") int fetchSize) {
+    this.emf = emf;
+    this.fetchSize = fetchSize;
+  }
+
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    return snapshot.search(condition);
+  }
+
+  public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+    return snapshot.searchPage(condition, pageable);
+  }
+
+  public long count(MemberSearchCondition condition) {
+    return snapshot.count(condition);
+  }
+
+  public Map<String, Long> countByTeam(MemberSearchCondition condition) {
+    return snapshot.countByTeam(condition);
+  }
+
+  public int size() {
+    return snapshot.size();
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void reload() {
+    worker.execute(() -> run(this::reloadNow));
+  }
+
+  @EventListener
+  public void onChange(EntityChangedEvent event) {
+    if (!event.isCommitted() || (!event.isAbout(Member.class) && !event.isAbout(Team.class))) {
+      return;
+    }
+    pending.add(event);
+    worker.execute(() -> run(this::applyPending));
+  }
+
+  /**
+   * 지금까지 요청된 적재와 변경 반영이 끝날 때까지 기다린다. 테스트와 벤치마크에서 쓴다.
+   */
+  public void awaitApplied(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+    try {
+      worker.submit(() -> { }).get(timeout, unit);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    worker.shutdownNow();
+  }
+
+  private void run(Runnable task) {
+    try {
+      task.run();
+    } catch (RuntimeException e) {
+      log.error("member snapshot update failed, snapshot may be stale until the next reload", e);
+    }
+  }
+
+  private void applyPending() {
+    if (!drainInto(snapshot)) {
+      reloadNow();
+    }
+  }
+
+  /**
+   * 새로 읽은 스냅샷에 적재 도중 쌓인 변경을 반영한 뒤 교체한다.
+   * 그 사이에 bulk 변경이 커밋됐으면 적재 결과에 빠졌을 수 있으므로 다시 읽는다.
+   */
+  private void reloadNow() {
+    MemberSnapshot loaded;
+    do {
+      loaded = load();
+    } while (!drainInto(loaded));
+    snapshot = loaded;
+    log.info("member snapshot loaded: {} members", loaded.size());
+  }
+
+  /**
+   * @return id 를 모르는 변경이 있어서 전부 다시 읽어야 하면 false
+   */
+  private boolean drainInto(MemberSnapshot target) {
+    Set<Object> teamIds = new LinkedHashSet<>();
+    Set<Object> memberIds = new LinkedHashSet<>();
+    boolean idsKnown = true;
+    EntityChangedEvent event;
+    while ((event = pending.poll()) != null) {
+      if (!event.isIdsKnown(Member.class) || !event.isIdsKnown(Team.class)) {
+        idsKnown = false;
+      }
+      teamIds.addAll(event.getIds(Team.class));
+      memberIds.addAll(event.getIds(Member.class));
+    }
+    if (!idsKnown) {
+      return false;
+    }
+    if (!teamIds.isEmpty() || !memberIds.isEmpty()) {
+      refresh(target, teamIds, memberIds);
+    }
+    return true;
+  }
+
+  /**
+   * 바뀐 id 의 현재 값을 DB 에서 읽어 덮어쓴다. 없어진 회원은 지운다.
+   * 이벤트에 담긴 값이 아니라 커밋된 최신 값을 읽으므로 이벤트 순서가 바뀌어도 결과는 같다.
+   */
+  private void refresh(MemberSnapshot target, Set<Object> teamIds, Set<Object> memberIds) {
+    EntityManager em = emf.createEntityManager();
+    try {
+      JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+      for (List<Long> chunk : chunks(teamIds)) {
+        for (Tuple row : queryFactory.select(team.id, team.name).from(team).where(team.id.in(chunk)).fetch()) {
+          target.putTeam(row.get(team.id), row.get(team.name));
+        }
+      }
+
+      for (List<Long> chunk : chunks(memberIds)) {
+        Set<Long> missing = new HashSet<>(chunk);
+        List<Tuple> rows = queryFactory
+                .select(member.id, member.username, member.age, member.team.id)
+                .from(member)
+                .where(member.id.in(chunk))
+                .fetch();
+        for (Tuple row : rows) {
+          Integer age = row.get(member.age);
+          target.putMember(row.get(member.id), row.get(member.username), age != null ? age : 0, row.get(member.team.id));
+          missing.remove(row.get(member.id));
+        }
+        for (Long deletedId : missing) {
+          target.removeMember(deletedId);
+        }
+      }
+    } finally {
+      em.close();
+    }
+  }
+
+  private static List<List<Long>> chunks(Set<Object> ids) {
+    List<List<Long>> chunks = new ArrayList<>();
+    List<Long> chunk = new ArrayList<>();
+    for (Object id : ids) {
+      chunk.add((Long) id);
+      if (chunk.size() == REFRESH_CHUNK_SIZE) {
+        chunks.add(chunk);
+        chunk = new ArrayList<>();
+      }
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+
+  private MemberSnapshot load() {
+    MemberSnapshot loaded = new MemberSnapshot();
+
+    // 현재 트랜잭션과 분리된 EntityManager 로 커밋된 데이터만 읽는다
+    EntityManager em = emf.createEntityManager();
+    try {
+      JPAQueryFactory queryFactory = new JPAQueryFactory(em);
+      for (Tuple row : queryFactory.select(team.id, team.name).from(team).fetch()) {
+        loaded.putTeam(row.get(team.id), row.get(team.name));
+      }
+
+      CloseableIterator<Tuple> rows = queryFactory
+              .select(member.id, member.username, member.age, member.team.id)
+              .from(member)
+              .orderBy(member.id.asc())
+              .setHint(QueryHints.FETCH_SIZE, fetchSize)
+              .iterate();
+      try {
+        while (rows.hasNext()) {
+          Tuple row = rows.next();
+          Integer age = row.get(member.age);
+          loaded.putMember(row.get(member.id), row.get(member.username), age != null ? age : 0, row.get(member.team.id));
+        }
+      } finally {
+        rows.close();
+      }
+    } finally {
+      em.close();
+    }
+    return loaded;
+  }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * JPQL bulk update/delete 는 엔티티 이벤트가 발생하지 않는다.
+ * hibernate 가 실행하는 SQL 중 flush 밖에서 실행되는 DML 을 bulk 로 보고 {@link EntityChangeCollector} 에 알린다.
+ */
+public class BulkStatementInspector implements StatementInspector {
+
+  private final EntityChangeCollector collector;
+  private final ThreadLocal<Boolean> flushing = ThreadLocal.withInitial(() -> Boolean.FALSE);
+  private volatile Map<String, Class<?>> entityTypeByTable = Collections.emptyMap();
+
+  public BulkStatementInspector(EntityChangeCollector collector) {
+    this.collector = collector;
+  }
+
+  /**
+   * 테이블명(소문자) -> 엔티티 타입. EntityManagerFactory 생성 후 {@link EntityChangeEventBridge} 가 채운다.
+   */
+  public void setEntityTypeByTable(Map<String, Class<?>> entityTypeByTable) {
+    this.entityTypeByTable = entityTypeByTable;
+  }
+
+  /**
+   * @return flush 시작 전 상태. {@link #flushFinished(boolean)} 에 finally 로 돌려준다
+   */
+  public boolean flushStarted() {
+    boolean previous = flushing.get();
+    flushing.set(Boolean.TRUE);
+    return previous;
+  }
+
+  public void flushFinished(boolean previous) {
+    flushing.set(previous);
+  }
+
+  @Override
+  public String inspect(String sql) {
+    if (!flushing.get()) {
+      String table = dmlTable(sql);
+      Class<?> entityType = table != null ? entityTypeByTable.get(table) : null;
+      if (entityType != null) {
+        collector.bulkChanged(entityType);
+      }
+    }
+    return sql;
+  }
+
+  static String dmlTable(String sql) {
+    String statement = stripComments(sql).toLowerCase(Locale.ROOT);
+    String rest;
+    if (statement.startsWith("update ")) {
+      rest = statement.substring("update ".length());
+    } else if (statement.startsWith("delete from ")) {
+      rest = statement.substring("delete from ".length());
+    } else if (statement.startsWith("insert into ")) {
+      rest = statement.substring("insert into ".length());
+    } else {
+      return null;
+    }
+    rest = rest.trim();
+    int end = 0;
+    while (end < rest.length() && !Character.isWhitespace(rest.charAt(end)) && rest.charAt(end) != '(') {
+      end++;
+    }
+    return rest.substring(0, end);
+  }
+
+  private static String stripComments(String sql) {
+    String statement = sql.trim();
+    while (statement.startsWith("/*")) {
+      int end = statement.indexOf("*/");
+      if (end < 0) {
+        return statement;
+      }
+      statement = statement.substring(end + 2).trim();
+    }
+    return statement;
+  }
+}
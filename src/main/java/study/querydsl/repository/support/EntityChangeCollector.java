@@ -0,0 +1,101 @@
+package study.querydsl.repository.support;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 엔티티 변경을 트랜잭션 단위로 모아 트랜잭션이 끝날 때 {@link EntityChangedEvent} 를 한 번만 발행한다.
+ * 행마다 이벤트를 내면 리스너마다 동기화가 행 수만큼 등록되고 엔티티가 커밋까지 붙잡혀 있으므로,
+ * 트랜잭션에 바인딩한 리소스 하나에 타입과 id 만 모은다. 트랜잭션 밖의 변경은 바로 발행한다.
+ */
+@Component
+public class EntityChangeCollector {
+
+  // 한 트랜잭션에서 이보다 많은 id 가 바뀐 타입은 id 를 버리고 "무엇이 바뀌었는지 모름" 으로 처리한다
+  static final int MAX_TRACKED_IDS = 10_000;
+
+  private final ApplicationEventPublisher publisher;
+
+  public EntityChangeCollector(ApplicationEventPublisher publisher) {
+    this.publisher = publisher;
+  }
+
+  public void changed(Class<?> entityType, Object id) {
+    ChangeSet changes = currentChanges();
+    if (changes == null) {
+      publisher.publishEvent(EntityChangedEvent.of(entityType, id));
+    } else {
+      changes.changed(entityType, id);
+    }
+  }
+
+  public void bulkChanged(Class<?> entityType) {
+    ChangeSet changes = currentChanges();
+    if (changes == null) {
+      publisher.publishEvent(EntityChangedEvent.bulk(entityType));
+    } else {
+      changes.unknown(entityType);
+    }
+  }
+
+  private ChangeSet currentChanges() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return null;
+    }
+    ChangeSet changes = (ChangeSet) TransactionSynchronizationManager.getResource(this);
+    if (changes == null) {
+      changes = new ChangeSet();
+      TransactionSynchronizationManager.bindResource(this, changes);
+      TransactionSynchronizationManager.registerSynchronization(changes);
+    }
+    return changes;
+  }
+
+  private class ChangeSet extends TransactionSynchronizationAdapter {
+
+    private final Map<Class<?>, Set<Object>> idsByType = new HashMap<>();
+    private final Set<Class<?>> unknownTypes = new HashSet<>();
+
+    void changed(Class<?> entityType, Object id) {
+      if (unknownTypes.contains(entityType)) {
+        return;
+      }
+      Set<Object> ids = idsByType.computeIfAbsent(entityType, type -> new LinkedHashSet<>());
+      ids.add(id);
+      if (ids.size() > MAX_TRACKED_IDS) {
+        unknown(entityType);
+      }
+    }
+
+    void unknown(Class<?> entityType) {
+      idsByType.remove(entityType);
+      unknownTypes.add(entityType);
+    }
+
+    // REQUIRES_NEW 로 바깥 트랜잭션이 잠시 멈추면 안쪽 트랜잭션의 변경이 섞이지 않도록 리소스도 같이 내려 둔다
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(EntityChangeCollector.this);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(EntityChangeCollector.this, this);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(EntityChangeCollector.this);
+      publisher.publishEvent(new EntityChangedEvent(idsByType, unknownTypes, status == TransactionSynchronization.STATUS_COMMITTED));
+    }
+  }
+}
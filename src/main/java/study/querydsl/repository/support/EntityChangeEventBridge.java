@@ -0,0 +1,122 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerGroup;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.Joinable;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * hibernate 의 post insert/update/delete 이벤트를 {@link EntityChangeCollector} 에 넘겨 트랜잭션 단위 {@link EntityChangedEvent} 로 모은다.
+ * bulk 연산 감지를 위해 {@link BulkStatementInspector} 에 flush 구간과 테이블-엔티티 매핑을 알려준다.
+ */
+@Component
+public class EntityChangeEventBridge implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+  private final EntityManagerFactory emf;
+  private final EntityChangeCollector collector;
+  private final BulkStatementInspector bulkStatementInspector;
+
+  public EntityChangeEventBridge(EntityManagerFactory emf, EntityChangeCollector collector,
+                                 BulkStatementInspector bulkStatementInspector) {
+    this.emf = emf;
+    this.collector = collector;
+    this.bulkStatementInspector = bulkStatementInspector;
+  }
+
+  @PostConstruct
+  public void register() {
+    SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+    EventListenerRegistry registry = sessionFactory
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+
+    // flush 중에 실행되는 DML 은 위 이벤트로 이미 알 수 있으므로 bulk 판정에서 제외.
+    // flush 가 예외로 끝나도 표시가 남지 않도록 기존 flush 리스너를 감싸서 finally 로 되돌린다
+    EventListenerGroup<FlushEventListener> flush = registry.getEventListenerGroup(EventType.FLUSH);
+    List<FlushEventListener> flushListeners = listeners(flush);
+    flush.clear();
+    flush.appendListener(event -> {
+      boolean previous = bulkStatementInspector.flushStarted();
+      try {
+        for (FlushEventListener listener : flushListeners) {
+          listener.onFlush(event);
+        }
+      } finally {
+        bulkStatementInspector.flushFinished(previous);
+      }
+    });
+
+    EventListenerGroup<AutoFlushEventListener> autoFlush = registry.getEventListenerGroup(EventType.AUTO_FLUSH);
+    List<AutoFlushEventListener> autoFlushListeners = listeners(autoFlush);
+    autoFlush.clear();
+    autoFlush.appendListener(event -> {
+      boolean previous = bulkStatementInspector.flushStarted();
+      try {
+        for (AutoFlushEventListener listener : autoFlushListeners) {
+          listener.onAutoFlush(event);
+        }
+      } finally {
+        bulkStatementInspector.flushFinished(previous);
+      }
+    });
+
+    Map<String, Class<?>> entityTypeByTable = new HashMap<>();
+    for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+      if (persister instanceof Joinable) {
+        String table = ((Joinable) persister).getTableName().toLowerCase(Locale.ROOT);
+        entityTypeByTable.put(table, persister.getMappedClass());
+      }
+    }
+    bulkStatementInspector.setEntityTypeByTable(entityTypeByTable);
+  }
+
+  private static <T> List<T> listeners(EventListenerGroup<T> group) {
+    List<T> listeners = new ArrayList<>();
+    for (T listener : group.listeners()) {
+      listeners.add(listener);
+    }
+    return listeners;
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    collector.changed(event.getPersister().getMappedClass(), event.getId());
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    collector.changed(event.getPersister().getMappedClass(), event.getId());
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    collector.changed(event.getPersister().getMappedClass(), event.getId());
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return false;
+  }
+}
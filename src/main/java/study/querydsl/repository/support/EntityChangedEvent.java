@@ -0,0 +1,69 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 트랜잭션 하나에서 바뀐 엔티티 요약. 트랜잭션이 끝날 때 한 번만 발행된다 (트랜잭션 밖의 변경은 즉시).
+ * 엔티티 인스턴스는 들고 있지 않고 타입과 id 만 남긴다.
+ * bulk 연산이 있었거나 id 가 너무 많았던 타입은 어떤 행이 바뀌었는지 모른다({@link #isIdsKnown} false).
+ */
+@ToString
+public class EntityChangedEvent {
+
+  private final Map<Class<?>, Set<Object>> idsByType;
+  private final Set<Class<?>> unknownTypes;
+  // 롤백으로 끝났으면 false. 캐시는 어느 쪽이든 비우고, 변경을 반영하는 쪽은 커밋된 것만 본다
+  @Getter
+  private final boolean committed;
+
+  public EntityChangedEvent(Map<Class<?>, Set<Object>> idsByType, Set<Class<?>> unknownTypes, boolean committed) {
+    this.idsByType = idsByType;
+    this.unknownTypes = unknownTypes;
+    this.committed = committed;
+  }
+
+  public static EntityChangedEvent of(Class<?> entityType, Object id) {
+    return new EntityChangedEvent(
+            Collections.singletonMap(entityType, Collections.singleton(id)), Collections.emptySet(), true);
+  }
+
+  public static EntityChangedEvent bulk(Class<?> entityType) {
+    return new EntityChangedEvent(Collections.emptyMap(), Collections.singleton(entityType), true);
+  }
+
+  public boolean isAbout(Class<?> type) {
+    return matches(idsByType.keySet(), type) || matches(unknownTypes, type);
+  }
+
+  public boolean isIdsKnown(Class<?> type) {
+    return !matches(unknownTypes, type);
+  }
+
+  /**
+   * @return type(하위 타입 포함) 의 바뀐 id. {@link #isIdsKnown} 이 false 면 일부만 들어 있을 수 있다
+   */
+  public Set<Object> getIds(Class<?> type) {
+    Set<Object> ids = new LinkedHashSet<>();
+    idsByType.forEach((changedType, changedIds) -> {
+      if (type.isAssignableFrom(changedType)) {
+        ids.addAll(changedIds);
+      }
+    });
+    return ids;
+  }
+
+  private static boolean matches(Set<Class<?>> types, Class<?> type) {
+    for (Class<?> changedType : types) {
+      if (type.isAssignableFrom(changedType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,192 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.spi.ParameterTranslations;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static study.querydsl.repository.support.MemberSearchQueryCache.*;
+
+/**
+ * 개발용. 검색 쿼리 모양마다 hibernate 가 만든 SQL 에 EXPLAIN 을 실행해서 member 테이블을 풀 스캔하는 모양을 알려준다.
+ * H2 는 실행 계획의 tableScan, MySQL 은 type = ALL 로 판단한다. 조건이 하나도 없는 모양은 풀 스캔이 당연하므로 제외.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.index-advisor.enabled", havingValue = "true")
+public class IndexAdvisor {
+
+  // MemberSearchQueryCache 의 파라미터 이름 -> EXPLAIN 에 넣을 예시 값
+  private static final Map<String, Object> SAMPLE_VALUES = new HashMap<>();
+
+  static {
+    SAMPLE_VALUES.put("username", "member1");
+    SAMPLE_VALUES.put("teamName", "teamA");
+    SAMPLE_VALUES.put("teamId", 1L);
+    SAMPLE_VALUES.put("ageGoe", 20);
+    SAMPLE_VALUES.put("ageLoe", 30);
+  }
+
+  private final EntityManagerFactory emf;
+  private final DataSource dataSource;
+  private final MemberSearchQueryCache searchQueryCache;
+
+  public IndexAdvisor(EntityManagerFactory emf, DataSource dataSource, MemberSearchQueryCache searchQueryCache) {
+    this.emf = emf;
+    this.dataSource = dataSource;
+    this.searchQueryCache = searchQueryCache;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void report() {
+    List<String> scans = advise();
+    if (scans.isEmpty()) {
+      log.info("index advisor: every member search shape uses an index");
+    }
+    for (String scan : scans) {
+      log.warn("index advisor: {}", scan);
+    }
+  }
+
+  /**
+   * @return 풀 스캔으로 실행되는 모양과 그 SQL
+   */
+  public List<String> advise() {
+    List<String> scans = new ArrayList<>();
+    for (int shape = 1; shape < SHAPE_COUNT; shape++) {
+      if ((shape & TEAM_NAME) != 0 && (shape & TEAM_ID) != 0) {
+        continue;
+      }
+      String sql = tableScanSql(searchQueryCache.jpqlOf(shape), searchQueryCache.parameterNamesOf(shape));
+      if (sql != null) {
+        scans.add(describe(shape) + " falls back to a table scan: " + sql);
+      }
+    }
+    return scans;
+  }
+
+  /**
+   * @param parameterNames JPQL 파라미터 라벨 -> 예시 값 이름 (username, teamName, teamId, ageGoe, ageLoe)
+   * @return member 테이블을 풀 스캔하면 그 SQL, 아니면 null
+   */
+  String tableScanSql(String jpql, Map<String, String> parameterNames) {
+    HQLQueryPlan plan = emf.unwrap(SessionFactoryImplementor.class).getQueryPlanCache()
+            .getHQLQueryPlan(jpql, false, Collections.emptyMap());
+    for (QueryTranslator translator : plan.getTranslators()) {
+      if (isTableScan(translator, parameterNames)) {
+        return translator.getSQLString();
+      }
+    }
+    return null;
+  }
+
+  private boolean isTableScan(QueryTranslator translator, Map<String, String> parameterNames) {
+    String sql = translator.getSQLString();
+    try (Connection connection = dataSource.getConnection();
+         PreparedStatement explain = connection.prepareStatement("explain " + sql)) {
+      for (Map.Entry<Integer, Object> parameter : sampleValues(translator, parameterNames).entrySet()) {
+        explain.setObject(parameter.getKey(), parameter.getValue());
+      }
+      try (ResultSet rs = explain.executeQuery()) {
+        return isTableScan(rs);
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("explain failed: " + sql, e);
+    }
+  }
+
+  private static boolean isTableScan(ResultSet rs) throws SQLException {
+    ResultSetMetaData metaData = rs.getMetaData();
+    int typeColumn = -1;
+    int tableColumn = -1;
+    for (int i = 1; i <= metaData.getColumnCount(); i++) {
+      String label = metaData.getColumnLabel(i).toLowerCase(Locale.ROOT);
+      if (label.equals("type")) {
+        typeColumn = i;
+      } else if (label.equals("table")) {
+        tableColumn = i;
+      }
+    }
+
+    while (rs.next()) {
+      if (typeColumn > 0) {
+        // MySQL: 한 줄이 테이블 하나
+        String table = tableColumn > 0 ? rs.getString(tableColumn) : "";
+        if ("ALL".equalsIgnoreCase(rs.getString(typeColumn)) && table != null && table.startsWith("member")) {
+          return true;
+        }
+      } else {
+        // H2: 계획 전체가 한 줄. /* PUBLIC.MEMBER.tableScan */
+        String plan = rs.getString(1).toUpperCase(Locale.ROOT);
+        if (plan.contains("MEMBER.TABLESCAN")) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param parameterNames JPQL 파라미터 라벨 -> 이름 ({@link MemberSearchQueryCache#parameterNamesOf})
+   * @return SQL 의 ? 위치(1 부터) -> 예시 값. 위치는 hibernate 가 JPQL 을 번역하면서 기록한 파라미터별 SQL 위치를 따른다
+   */
+  static Map<Integer, Object> sampleValues(QueryTranslator translator, Map<String, String> parameterNames) {
+    Map<Integer, Object> values = new TreeMap<>();
+    ParameterTranslations parameters = translator.getParameterTranslations();
+    parameters.getNamedParameterInformationMap().forEach(
+            (label, information) -> putSampleValue(values, parameterNames.get(label), information.getSourceLocations()));
+    parameters.getPositionalParameterInformationMap().forEach(
+            (label, information) -> putSampleValue(values, parameterNames.get(String.valueOf(label)), information.getSourceLocations()));
+    return values;
+  }
+
+  private static void putSampleValue(Map<Integer, Object> values, String name, int[] sourceLocations) {
+    Object value = SAMPLE_VALUES.get(name);
+    if (value == null) {
+      throw new IllegalStateException("no sample value for parameter: " + name);
+    }
+    for (int location : sourceLocations) {
+      values.put(location + 1, value);
+    }
+  }
+
+  private static String describe(int shape) {
+    List<String> fields = new ArrayList<>();
+    if ((shape & USERNAME) != 0) {
+      fields.add("username");
+    }
+    if ((shape & TEAM_NAME) != 0) {
+      fields.add("teamName");
+    }
+    if ((shape & TEAM_ID) != 0) {
+      fields.add("teamId");
+    }
+    if ((shape & AGE_GOE) != 0) {
+      fields.add("ageGoe");
+    }
+    if ((shape & AGE_LOE) != 0) {
+      fields.add("ageLoe");
+    }
+    return "shape " + fields;
+  }
+}
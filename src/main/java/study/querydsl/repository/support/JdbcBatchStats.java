@@ -0,0 +1,71 @@
+package study.querydsl.repository.support;
+
+/**
+ * 현재 스레드에서 열어 둔 구간 동안 실제로 실행된 DML 수와 JDBC batch 실행 수.
+ * {@link RepositoryJdbcEventListener} 가 p6spy 이벤트(addBatch / executeBatch / executeUpdate)로 채운다.
+ * try-with-resources 로 열고 닫는다. 중첩해서 열면 안쪽 구간의 SQL 은 안쪽에만 센다.
+ */
+public final class JdbcBatchStats implements AutoCloseable {
+
+  private static final ThreadLocal<JdbcBatchStats> CURRENT = new ThreadLocal<>();
+
+  private final JdbcBatchStats previous;
+  private long batchedStatementCount;
+  private long unbatchedStatementCount;
+  private long batchCount;
+
+  private JdbcBatchStats(JdbcBatchStats previous) {
+    this.previous = previous;
+  }
+
+  public static JdbcBatchStats open() {
+    JdbcBatchStats stats = new JdbcBatchStats(CURRENT.get());
+    CURRENT.set(stats);
+    return stats;
+  }
+
+  static void addedToBatch() {
+    JdbcBatchStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.batchedStatementCount++;
+    }
+  }
+
+  static void batchExecuted() {
+    JdbcBatchStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.batchCount++;
+    }
+  }
+
+  static void updateExecuted() {
+    JdbcBatchStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.unbatchedStatementCount++;
+    }
+  }
+
+  /**
+   * batch 에 담긴 것과 하나씩 실행된 것을 합친 DML 수
+   */
+  public long getStatementCount() {
+    return batchedStatementCount + unbatchedStatementCount;
+  }
+
+  public long getUnbatchedStatementCount() {
+    return unbatchedStatementCount;
+  }
+
+  public long getBatchCount() {
+    return batchCount;
+  }
+
+  @Override
+  public void close() {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+}
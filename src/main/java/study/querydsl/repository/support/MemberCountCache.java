@@ -0,0 +1,92 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 검색 조건별 count 결과 캐시. 같은 조건으로 페이지만 넘기는 경우 count 쿼리를 다시 실행하지 않는다.
+ * ttl 이 지나거나 Member/Team 이 변경되면 무효화된다. 크기가 차면 caffeine 이 덜 쓰이는 조건부터 내보낸다.
+ */
+@Component
+public class MemberCountCache {
+
+  private final Cache<MemberSearchCondition, Long> totals;
+  // 무효화가 일어날 때마다 증가. count 도중 무효화되면 그 결과는 저장하지 않는다
+  private final AtomicLong generation = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public MemberCountCache(@Value("${member.search.count-cache.ttl-seconds:30}") long ttlSeconds,
+                          @Value("${member.search.count-cache.max-size:1000}") int maxSize) {
+    this.totals = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .build();
+  }
+
+  public long getTotal(MemberSearchCondition condition, LongSupplier countQuery) {
+    if (!SearchCachePolicy.canUseCache()) {
+      return countQuery.getAsLong();
+    }
+
+    MemberSearchCondition key = condition.normalize();
+    Long cached = totals.getIfPresent(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    misses.increment();
+    long startGeneration = generation.get();
+    long total = countQuery.getAsLong();
+    if (startGeneration == generation.get()) {
+      totals.put(key, total);
+    }
+    return total;
+  }
+
+  /**
+   * @return 캐시에 있는 정확한 total. 없거나 만료됐으면 null
+   */
+  public Long getIfPresent(MemberSearchCondition condition) {
+    if (!SearchCachePolicy.canUseCache()) {
+      return null;
+    }
+    return totals.getIfPresent(condition.normalize());
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    totals.invalidateAll();
+  }
+
+  @EventListener
+  public void onChange(EntityChangedEvent event) {
+    if (event.isAbout(Member.class) || event.isAbout(Team.class)) {
+      invalidateAll();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long size() {
+    return totals.estimatedSize();
+  }
+}
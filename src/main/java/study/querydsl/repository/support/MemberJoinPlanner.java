@@ -0,0 +1,99 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.jpa.JPQLQuery;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 쿼리에 team join 이 실제로 필요한지 판단한다.
+ * projection 과 where 조건에서 team 별칭을 참조할 때만 left join 을 추가한다.
+ * (member.team.id 는 FK 컬럼이므로 join 없이 조회된다)
+ */
+public final class MemberJoinPlanner {
+
+  private MemberJoinPlanner() {
+  }
+
+  public static <Q extends JPQLQuery<?>> Q leftJoinTeamIfNeeded(Q query, Expression<?> projection, Expression<?>... where) {
+    if (references(team, projection) || references(team, where)) {
+      query.leftJoin(member.team, team);
+    }
+    return query;
+  }
+
+  public static boolean references(Path<?> root, Expression<?>... expressions) {
+    Set<Path<?>> roots = new HashSet<>();
+    for (Expression<?> expression : expressions) {
+      if (expression != null) {
+        expression.accept(RootCollector.INSTANCE, roots);
+      }
+    }
+    return roots.contains(root);
+  }
+
+  private static final class RootCollector implements Visitor<Void, Set<Path<?>>> {
+
+    private static final RootCollector INSTANCE = new RootCollector();
+
+    @Override
+    public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+      return null;
+    }
+
+    @Override
+    public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+      for (Expression<?> arg : expr.getArgs()) {
+        arg.accept(this, roots);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+      for (Expression<?> arg : expr.getArgs()) {
+        arg.accept(this, roots);
+      }
+      return null;
+    }
+
+    @Override
+    public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+      return null;
+    }
+
+    @Override
+    public Void visit(Path<?> expr, Set<Path<?>> roots) {
+      roots.add(expr.getRoot());
+      return null;
+    }
+
+    // 서브쿼리는 자기 from 절을 가지므로 바깥 쿼리의 join 과 무관
+    @Override
+    public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+      return null;
+    }
+
+    @Override
+    public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+      for (Object arg : expr.getArgs()) {
+        if (arg instanceof Expression) {
+          ((Expression<?>) arg).accept(this, roots);
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.data.domain.Pageable;
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * 검색 메소드 + 정규화한 조건 + 페이지. 같은 키면 같은 결과.
+ */
+@EqualsAndHashCode
+@ToString
+class MemberSearchKey {
+  private final String method;
+  private final MemberSearchCondition condition;
+  private final Pageable pageable;
+
+  MemberSearchKey(String method, MemberSearchCondition condition, Pageable pageable) {
+    this.method = method;
+    this.condition = condition.normalize();
+    this.pageable = pageable;
+  }
+}
@@ -0,0 +1,229 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberTeamDto;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.springframework.util.StringUtils.hasText;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition 의 4개 조건은 있거나 없거나 둘 중 하나라서 쿼리 모양은 16가지뿐이다.
+ * (팀 이름은 {@link TeamIdCache} 로 id 를 알면 team_id 비교로 바뀌므로 모양이 하나 더 늘어난다)
+ * 모양별로 querydsl 표현식 조립과 JPQL 직렬화를 한 번만 하고, 요청마다 파라미터만 바인딩한다.
+ */
+@Component
+public class MemberSearchQueryCache {
+
+  public static final int USERNAME = 1;
+  public static final int TEAM_NAME = 1 << 1;
+  public static final int AGE_GOE = 1 << 2;
+  public static final int AGE_LOE = 1 << 3;
+  public static final int TEAM_ID = 1 << 4;
+  public static final int SHAPE_COUNT = 1 << 5;
+
+  private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+  private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+  private static final Param<Long> TEAM_ID_PARAM = new Param<>(Long.class, "teamId");
+  private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+  private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+
+  private static final QMemberTeamDto PROJECTION = new QMemberTeamDto(
+          member.id.as("memberId"),
+          member.username,
+          member.age,
+          team.id.as("teamId"),
+          team.name.as("teamName")
+  );
+
+  private final EntityManager em;
+  private final TeamIdCache teamIdCache;
+  private final AtomicReferenceArray<CompiledQuery> compiled = new AtomicReferenceArray<>(SHAPE_COUNT);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public MemberSearchQueryCache(EntityManager em, TeamIdCache teamIdCache) {
+    this.em = em;
+    this.teamIdCache = teamIdCache;
+  }
+
+  public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    Long teamId = hasText(condition.getTeamName()) ? teamIdCache.findId(condition.getTeamName()) : null;
+    CompiledQuery query = get(shapeOf(condition, teamId));
+
+    Query jpaQuery = em.createQuery(query.jpql);
+    for (Binding binding : query.bindings) {
+      binding.bind(jpaQuery, condition, teamId);
+    }
+
+    List<?> rows = jpaQuery.getResultList();
+    List<MemberTeamDto> result = new ArrayList<>(rows.size());
+    for (Object row : rows) {
+      result.add(PROJECTION.newInstance((Object[]) row));
+    }
+    return result;
+  }
+
+  /**
+   * @param teamId 팀 이름으로 찾은 id. 모르면 null 이고 팀 이름 비교(join)로 조회한다
+   */
+  public static int shapeOf(MemberSearchCondition condition, Long teamId) {
+    int shape = 0;
+    if (hasText(condition.getUsername())) {
+      shape |= USERNAME;
+    }
+    if (teamId != null) {
+      shape |= TEAM_ID;
+    } else if (hasText(condition.getTeamName())) {
+      shape |= TEAM_NAME;
+    }
+    if (condition.getAgeGoe() != null) {
+      shape |= AGE_GOE;
+    }
+    if (condition.getAgeLoe() != null) {
+      shape |= AGE_LOE;
+    }
+    return shape;
+  }
+
+  /**
+   * @return 해당 모양의 JPQL (없으면 컴파일)
+   */
+  public String jpqlOf(int shape) {
+    return get(shape).jpql;
+  }
+
+  /**
+   * @return 해당 모양 JPQL 의 파라미터 라벨(?1 이면 "1") -> 파라미터 이름 (username, teamName, teamId, ageGoe, ageLoe)
+   */
+  public Map<String, String> parameterNamesOf(int shape) {
+    Map<String, String> names = new HashMap<>();
+    for (Binding binding : get(shape).bindings) {
+      names.put(binding.label, binding.param.getName());
+    }
+    return names;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public int getCompiledShapeCount() {
+    int count = 0;
+    for (int i = 0; i < SHAPE_COUNT; i++) {
+      if (compiled.get(i) != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private CompiledQuery get(int shape) {
+    CompiledQuery query = compiled.get(shape);
+    if (query != null) {
+      hits.increment();
+      return query;
+    }
+    misses.increment();
+    compiled.compareAndSet(shape, null, compile(shape));
+    return compiled.get(shape);
+  }
+
+  private CompiledQuery compile(int shape) {
+    JPAQuery<MemberTeamDto> query = new JPAQuery<>(em)
+            .select(PROJECTION)
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(
+                    (shape & USERNAME) != 0 ? member.username.eq(USERNAME_PARAM) : null,
+                    (shape & TEAM_NAME) != 0 ? team.name.eq(TEAM_NAME_PARAM) : null,
+                    (shape & TEAM_ID) != 0 ? member.team.id.eq(TEAM_ID_PARAM) : null,
+                    (shape & AGE_GOE) != 0 ? member.age.goe(AGE_GOE_PARAM) : null,
+                    (shape & AGE_LOE) != 0 ? member.age.loe(AGE_LOE_PARAM) : null
+            );
+
+    JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+    serializer.serialize(query.getMetadata(), false, null);
+
+    List<Binding> bindings = new ArrayList<>();
+    for (Map.Entry<Object, String> entry : serializer.getConstantToLabel().entrySet()) {
+      bindings.add(new Binding((Param<?>) entry.getKey(), entry.getValue()));
+    }
+    return new CompiledQuery(serializer.toString(), Collections.unmodifiableList(bindings));
+  }
+
+  private static class CompiledQuery {
+    private final String jpql;
+    private final List<Binding> bindings;
+
+    CompiledQuery(String jpql, List<Binding> bindings) {
+      this.jpql = jpql;
+      this.bindings = bindings;
+    }
+  }
+
+  private static class Binding {
+    private final Param<?> param;
+    private final String label;
+
+    Binding(Param<?> param, String label) {
+      this.param = param;
+      this.label = label;
+    }
+
+    void bind(Query query, MemberSearchCondition condition, Long teamId) {
+      Object value = valueOf(param.getName(), condition, teamId);
+      if (isPositional()) {
+        query.setParameter(Integer.parseInt(label), value);
+      } else {
+        query.setParameter(label, value);
+      }
+    }
+
+    private boolean isPositional() {
+      for (int i = 0; i < label.length(); i++) {
+        if (!Character.isDigit(label.charAt(i))) {
+          return false;
+        }
+      }
+      return !label.isEmpty();
+    }
+
+    private static Object valueOf(String name, MemberSearchCondition condition, Long teamId) {
+      switch (name) {
+        case "username":
+          return condition.getUsername();
+        case "teamName":
+          return condition.getTeamName();
+        case "teamId":
+          return teamId;
+        case "ageGoe":
+          return condition.getAgeGoe();
+        case "ageLoe":
+          return condition.getAgeLoe();
+        default:
+          throw new IllegalStateException("unknown param: " + name);
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * MemberRepositoryCustom 검색 결과 캐시.
+ * caffeine(W-TinyLFU) 으로 결과 row 수 기준 최대 크기를 제한하고, Member/Team 변경 이벤트(bulk 포함)가 오면 전부 비운다.
+ * 같은 인스턴스를 모든 히트에 돌려주므로 목록은 수정 불가로 감싸서 저장한다.
+ */
+@Component
+public class MemberSearchResultCache {
+
+  private final Cache<MemberSearchKey, Object> cache;
+  // 무효화가 일어날 때마다 증가. 조회 도중 무효화되면 그 결과는 저장하지 않는다
+  private final AtomicLong generation = new AtomicLong();
+
+  public MemberSearchResultCache(@Value("${member.search.result-cache.max-rows:100000}") long maxRows,
+                                 @Value("${member.search.result-cache.ttl-seconds:60}") long ttlSeconds) {
+    this.cache = Caffeine.newBuilder()
+            .maximumWeight(maxRows)
+            .weigher((MemberSearchKey key, Object value) -> weightOf(value))
+            .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+            .recordStats()
+            .build();
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T get(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+    if (!SearchCachePolicy.canUseCache()) {
+      return loader.get();
+    }
+
+    MemberSearchKey key = new MemberSearchKey(method, condition, pageable);
+    Object cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return (T) cached;
+    }
+
+    long startGeneration = generation.get();
+    T result = SharedSearchResults.unmodifiable(loader.get());
+    if (result != null && startGeneration == generation.get()) {
+      cache.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * 무효화될 때마다 바뀌는 값. single-flight 가 무효화 전에 시작된 조회를 새 호출과 나누는 데 쓴다.
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  @EventListener
+  public void onChange(EntityChangedEvent event) {
+    if (event.isAbout(Member.class) || event.isAbout(Team.class)) {
+      invalidateAll();
+    }
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  public long estimatedSize() {
+    return cache.estimatedSize();
+  }
+
+  private static int weightOf(Object value) {
+    if (value instanceof Slice) {
+      return Math.max(1, ((Slice<?>) value).getNumberOfElements());
+    }
+    if (value instanceof Collection) {
+      return Math.max(1, ((Collection<?>) value).size());
+    }
+    return 1;
+  }
+}
@@ -0,0 +1,137 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 같은 검색(메소드 + 정규화한 조건 + 페이지)이 동시에 들어오면 DB 조회는 먼저 온 호출 하나만 하고
+ * 나머지는 그 결과를 기다렸다가 같이 받는다. 결과 캐시에 없을 때만 거친다. (결과 캐시 → single-flight → DB)
+ * 결과 캐시와 같은 이유로 쓰기 트랜잭션 안에서는 공유하지 않는다.
+ * 결과 캐시가 무효화되기 전에 시작된 조회에는 합류하지 않는다 (키에 무효화 세대를 넣는다).
+ * 기다리는 쪽은 wait-timeout-ms 까지만 기다리고, 넘으면 직접 조회한다.
+ * 먼저 온 호출과 기다린 호출이 같은 결과를 받으므로 목록은 수정 불가로 감싸서 나눠 준다.
+ */
+@Component
+public class MemberSearchSingleFlight {
+
+  private final ConcurrentMap<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+  private final LongAdder leaders = new LongAdder();
+  private final LongAdder followers = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+
+  private final MemberSearchResultCache resultCache;
+  private final long waitTimeoutMillis;
+
+  public MemberSearchSingleFlight(MeterRegistry registry, MemberSearchResultCache resultCache,
+                                  @Value("${member.search.single-flight.wait-timeout-ms:3000}") long waitTimeoutMillis) {
+    this.resultCache = resultCache;
+    this.waitTimeoutMillis = waitTimeoutMillis;
+    FunctionCounter.builder("member.search.single-flight", leaders, LongAdder::doubleValue)
+            .tag("role", "leader")
+            .register(registry);
+    FunctionCounter.builder("member.search.single-flight", followers, LongAdder::doubleValue)
+            .tag("role", "follower")
+            .register(registry);
+    FunctionCounter.builder("member.search.single-flight.timeouts", timeouts, LongAdder::doubleValue)
+            .register(registry);
+    Gauge.builder("member.search.single-flight.coalescing-ratio", this, MemberSearchSingleFlight::getCoalescingRatio)
+            .register(registry);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T> T execute(String method, MemberSearchCondition condition, Pageable pageable, Supplier<T> loader) {
+    if (!SearchCachePolicy.canUseCache()) {
+      return loader.get();
+    }
+
+    FlightKey key = new FlightKey(resultCache.getGeneration(), new MemberSearchKey(method, condition, pageable));
+    CompletableFuture<Object> call = new CompletableFuture<>();
+    CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+    if (running != null) {
+      followers.increment();
+      try {
+        return (T) await(running);
+      } catch (TimeoutException e) {
+        timeouts.increment();
+        return loader.get();
+      }
+    }
+
+    leaders.increment();
+    try {
+      T result = SharedSearchResults.unmodifiable(loader.get());
+      call.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      call.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, call);
+    }
+  }
+
+  private Object await(CompletableFuture<Object> running) throws TimeoutException {
+    try {
+      return running.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted while waiting for in-flight search", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  public long getLeaderCount() {
+    return leaders.sum();
+  }
+
+  public long getFollowerCount() {
+    return followers.sum();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  /**
+   * 전체 호출 중 다른 호출의 결과를 받아 간 비율
+   */
+  public double getCoalescingRatio() {
+    long followerCount = followers.sum();
+    long total = leaders.sum() + followerCount;
+    return total == 0 ? 0 : (double) followerCount / total;
+  }
+
+  @EqualsAndHashCode
+  private static final class FlightKey {
+    private final long generation;
+    private final MemberSearchKey search;
+
+    private FlightKey(long generation, MemberSearchKey search) {
+      this.generation = generation;
+      this.search = search;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package study.querydsl.repository.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * hibernate 가 본 서로 다른 JPQL 문자열 수가 주기마다 계속 늘어나면 경고한다.
+ * 상수가 파라미터 대신 JPQL 에 박히면(Expressions.constant, stringTemplate 등) 쿼리 플랜 캐시가 계속 새로 채워진다.
+ * 서로 다른 문자열 수는 hibernate.statistics.query_max_size(기본 5000)에서 멈추므로 그 전에 알려야 의미가 있다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "member.query-plan-monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryPlanChurnMonitor {
+
+  private final EntityManagerFactory emf;
+  private final int warnAfter;
+
+  private long lastDistinctQueries = -1;
+  private long lastPlanMisses;
+  private int growthStreak;
+
+  public QueryPlanChurnMonitor(EntityManagerFactory emf,
+                               @Value("${member.query-plan-monitor.warn-after:5}") int warnAfter) {
+    this.emf = emf;
+    this.warnAfter = warnAfter;
+  }
+
+  @Scheduled(fixedDelayString = "${member.query-plan-monitor.interval-ms:60000}",
+          initialDelayString = "${member.query-plan-monitor.interval-ms:60000}")
+  public synchronized void check() {
+    Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    long distinctQueries = statistics.getQueries().length;
+    long planMisses = statistics.getQueryPlanCacheMissCount();
+
+    if (lastDistinctQueries >= 0 && distinctQueries > lastDistinctQueries) {
+      growthStreak++;
+      if (growthStreak >= warnAfter) {
+        log.warn("query plan churn: distinct JPQL {} (+{}) growing for {} checks, plan cache misses +{}",
+                distinctQueries, distinctQueries - lastDistinctQueries, growthStreak, planMisses - lastPlanMisses);
+      }
+    } else {
+      growthStreak = 0;
+    }
+    lastDistinctQueries = distinctQueries;
+    lastPlanMisses = planMisses;
+  }
+
+  public synchronized int getGrowthStreak() {
+    return growthStreak;
+  }
+}
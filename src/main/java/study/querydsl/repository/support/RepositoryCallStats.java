@@ -0,0 +1,75 @@
+package study.querydsl.repository.support;
+
+/**
+ * 현재 스레드에서 실행 중인 repository 메소드 호출 하나가 실행한 SQL 수와 커넥션 획득 시간.
+ * {@link RepositoryMetricsAspect} 가 호출마다 만들고 {@link RepositoryJdbcEventListener} 가 채운다.
+ * 요청 범위를 열면(beginRequest) 그 안에서 호출한 repository 메소드들의 시간 합계도 모은다.
+ */
+public class RepositoryCallStats {
+
+  private static final ThreadLocal<RepositoryCallStats> CURRENT = new ThreadLocal<>();
+  private static final ThreadLocal<long[]> REQUEST_NANOS = new ThreadLocal<>();
+
+  private long statementCount;
+  private long connectionAcquireNanos;
+
+  static RepositoryCallStats current() {
+    return CURRENT.get();
+  }
+
+  static void set(RepositoryCallStats stats) {
+    if (stats == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(stats);
+    }
+  }
+
+  public static void beginRequest() {
+    REQUEST_NANOS.set(new long[]{-1});
+  }
+
+  /**
+   * @return 요청 중 가장 바깥 repository 호출들의 시간 합계. 호출이 없었으면 -1
+   */
+  public static long endRequest() {
+    long[] nanos = REQUEST_NANOS.get();
+    REQUEST_NANOS.remove();
+    return nanos != null ? nanos[0] : -1;
+  }
+
+  static void repositoryCalled(long nanos) {
+    long[] requestNanos = REQUEST_NANOS.get();
+    if (requestNanos != null) {
+      requestNanos[0] = Math.max(requestNanos[0], 0) + nanos;
+    }
+  }
+
+  static void statementExecuted() {
+    RepositoryCallStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.statementCount++;
+    }
+  }
+
+  static void connectionAcquired(long nanos) {
+    RepositoryCallStats stats = CURRENT.get();
+    if (stats != null) {
+      stats.connectionAcquireNanos += nanos;
+    }
+  }
+
+  // 중첩 호출의 SQL 은 바깥 호출에도 포함
+  void addAll(RepositoryCallStats inner) {
+    statementCount += inner.statementCount;
+    connectionAcquireNanos += inner.connectionAcquireNanos;
+  }
+
+  public long getStatementCount() {
+    return statementCount;
+  }
+
+  public long getConnectionAcquireNanos() {
+    return connectionAcquireNanos;
+  }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.repository.support;
+
+import com.p6spy.engine.common.ConnectionInformation;
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 이벤트로 repository 호출별 SQL 실행 수와 커넥션 획득 시간을 모은다.
+ * {@link JdbcBatchStats} 가 열려 있으면 batch 로 나간 DML 수도 센다.
+ */
+@Component
+public class RepositoryJdbcEventListener extends SimpleJdbcEventListener {
+
+  @Override
+  public void onAfterGetConnection(ConnectionInformation connectionInformation, SQLException e) {
+    RepositoryCallStats.connectionAcquired(connectionInformation.getTimeToGetConnectionNs());
+  }
+
+  @Override
+  public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    RepositoryCallStats.statementExecuted();
+  }
+
+  @Override
+  public void onAfterAnyAddBatch(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+    if (e == null) {
+      JdbcBatchStats.addedToBatch();
+    }
+  }
+
+  @Override
+  public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+    super.onAfterExecuteBatch(statementInformation, timeElapsedNanos, updateCounts, e);
+    if (e == null) {
+      JdbcBatchStats.batchExecuted();
+    }
+  }
+
+  @Override
+  public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+    super.onAfterExecuteUpdate(statementInformation, timeElapsedNanos, rowCount, e);
+    if (e == null) {
+      JdbcBatchStats.updateExecuted();
+    }
+  }
+}
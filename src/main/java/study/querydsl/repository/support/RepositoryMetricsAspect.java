@@ -0,0 +1,92 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberKeysetPage;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 repository 메소드별 지연시간(p50/p95/p99), SQL 실행 수, 반환 row 수, 커넥션 획득 시간을 기록한다.
+ * /actuator/metrics/member.repository.calls?tag=method:search 처럼 조회한다.
+ */
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+  private final MeterRegistry registry;
+
+  public RepositoryMetricsAspect(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Around("execution(public * *(..)) && (bean(memberRepositoryImpl) || bean(memberJpaRepository) || bean(memberQueryRepository))")
+  public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+    String repository = joinPoint.getSignature().getDeclaringType().getSimpleName();
+    String method = joinPoint.getSignature().getName();
+
+    RepositoryCallStats outer = RepositoryCallStats.current();
+    RepositoryCallStats stats = new RepositoryCallStats();
+    RepositoryCallStats.set(stats);
+
+    long start = System.nanoTime();
+    String outcome = "success";
+    try {
+      Object result = joinPoint.proceed();
+      summary("member.repository.rows", repository, method).record(rowsOf(result));
+      return result;
+    } catch (Throwable e) {
+      outcome = "error";
+      throw e;
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      RepositoryCallStats.set(outer);
+      if (outer != null) {
+        outer.addAll(stats);
+      } else {
+        RepositoryCallStats.repositoryCalled(elapsed);
+      }
+
+      Timer.builder("member.repository.calls")
+              .tags("repository", repository, "method", method, "outcome", outcome)
+              .publishPercentiles(0.5, 0.95, 0.99)
+              .register(registry)
+              .record(elapsed, TimeUnit.NANOSECONDS);
+      summary("member.repository.statements", repository, method).record(stats.getStatementCount());
+      Timer.builder("member.repository.connection.acquire")
+              .tags("repository", repository, "method", method)
+              .register(registry)
+              .record(stats.getConnectionAcquireNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private DistributionSummary summary(String name, String repository, String method) {
+    return DistributionSummary.builder(name)
+            .tags("repository", repository, "method", method)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(registry);
+  }
+
+  private static long rowsOf(Object result) {
+    if (result instanceof Collection) {
+      return ((Collection<?>) result).size();
+    }
+    if (result instanceof Slice) {
+      return ((Slice<?>) result).getNumberOfElements();
+    }
+    if (result instanceof MemberKeysetPage) {
+      return ((MemberKeysetPage) result).getContent().size();
+    }
+    if (result instanceof Long) {
+      return (Long) result;
+    }
+    return 0;
+  }
+}
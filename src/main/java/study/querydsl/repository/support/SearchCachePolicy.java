@@ -0,0 +1,18 @@
+package study.querydsl.repository.support;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 검색 캐시 사용 여부 판단.
+ * 쓰기 트랜잭션 안에서는 아직 flush 되지 않았거나 커밋되지 않은 변경이 있을 수 있으므로 캐시를 읽지도 채우지도 않는다.
+ */
+public final class SearchCachePolicy {
+
+  private SearchCachePolicy() {
+  }
+
+  public static boolean canUseCache() {
+    return !TransactionSynchronizationManager.isActualTransactionActive()
+            || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+  }
+}
@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 결과 캐시와 single-flight 는 한 결과를 여러 호출에 나눠 준다. 한 호출이 목록을 고쳐 다른 호출에 보이지 않도록 수정 불가로 감싼다.
+ * Page/Slice 의 getContent() 는 이미 수정 불가 목록을 돌려주고, MemberTeamDto 는 불변이다.
+ */
+final class SharedSearchResults {
+
+  private SharedSearchResults() {
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T> T unmodifiable(T result) {
+    if (result instanceof List) {
+      return (T) Collections.unmodifiableList(new ArrayList<>((List<?>) result));
+    }
+    return result;
+  }
+}
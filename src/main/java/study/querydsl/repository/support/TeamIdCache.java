@@ -0,0 +1,159 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import study.querydsl.entity.Team;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static study.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 이름 -> id 사전. teamName 조건을 team.name = ? (join 필요) 대신 member.team_id = ? 로 바꾸는 데 쓴다.
+ * 팀 테이블은 작고 거의 바뀌지 않으므로 전부 메모리에 올리고, Team 이 바뀌면 다시 읽는다.
+ * 이름이 중복된 팀이나 사전에 없는 이름은 null 을 돌려주므로 호출하는 쪽은 join 조건으로 대신해야 한다.
+ * 다시 읽기는 별도 스레드 하나가 한다. 요청 스레드는 커넥션을 더 잡거나 기다리지 않고, 다 읽을 때까지는 null(join)을 받는다.
+ */
+@Slf4j
+@Component
+public class TeamIdCache {
+
+  private final EntityManagerFactory emf;
+  // 무효화되면 null. 다시 읽기가 끝나면 채워진다
+  private volatile Map<String, Long> idByName;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+  private final LongAdder reloads = new LongAdder();
+  private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "team-id-cache");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public TeamIdCache(EntityManagerFactory emf) {
+    this.emf = emf;
+  }
+
+  public Long findId(String teamName) {
+    if (!SearchCachePolicy.canUseCache()) {
+      return null;
+    }
+    Map<String, Long> ids = idByName;
+    if (ids == null) {
+      scheduleReload();
+      return null;
+    }
+    return ids.get(teamName);
+  }
+
+  // 요청을 받기 전이므로 기동 스레드에서 바로 읽는다
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    reload();
+  }
+
+  public void invalidate() {
+    generation.incrementAndGet();
+    idByName = null;
+    scheduleReload();
+  }
+
+  @EventListener
+  public void onChange(EntityChangedEvent event) {
+    if (event.isAbout(Team.class)) {
+      invalidate();
+    }
+  }
+
+  public long getReloadCount() {
+    return reloads.sum();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    worker.shutdownNow();
+  }
+
+  // 이미 예약된 다시 읽기가 있으면 그 결과를 쓴다
+  private void scheduleReload() {
+    if (!reloadScheduled.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      worker.execute(this::reloadInBackground);
+    } catch (RejectedExecutionException e) {
+      reloadScheduled.set(false);
+    }
+  }
+
+  private void reloadInBackground() {
+    boolean applied;
+    try {
+      applied = reload();
+    } catch (RuntimeException e) {
+      // 다음 조회가 다시 예약한다. 그동안은 join 으로 조회된다
+      log.warn("team id reload failed", e);
+      reloadScheduled.set(false);
+      return;
+    }
+    reloadScheduled.set(false);
+    // 읽는 도중 무효화됐으면 바뀐 뒤의 팀으로 다시 읽는다
+    if (!applied) {
+      scheduleReload();
+    }
+  }
+
+  /**
+   * @return 읽는 동안 무효화되지 않아 사전을 교체했으면 true
+   */
+  private boolean reload() {
+    reloads.increment();
+    long startGeneration = generation.get();
+
+    // 커밋된 팀만 읽는다
+    EntityManager em = emf.createEntityManager();
+    List<Tuple> rows;
+    try {
+      rows = new JPAQueryFactory(em)
+              .select(team.name, team.id)
+              .from(team)
+              .fetch();
+    } finally {
+      em.close();
+    }
+
+    Map<String, Long> ids = new HashMap<>();
+    Set<String> duplicated = new HashSet<>();
+    for (Tuple row : rows) {
+      String name = row.get(team.name);
+      if (name != null && ids.put(name, row.get(team.id)) != null) {
+        duplicated.add(name);
+      }
+    }
+    ids.keySet().removeAll(duplicated);
+
+    if (startGeneration != generation.get()) {
+      return false;
+    }
+    idByName = Collections.unmodifiableMap(ids);
+    return true;
+  }
+}
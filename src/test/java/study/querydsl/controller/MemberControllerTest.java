@@ -0,0 +1,43 @@
+package study.querydsl.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import study.querydsl.repository.support.MemberSearchResultCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  MemberSearchResultCache resultCache;
+
+  @Test
+  public void v1SearchUsesResultCache() throws Exception {
+    long hits = resultCache.stats().hitCount();
+
+    mockMvc.perform(get("/v1/members").param("username", "v1-cached"))
+            .andExpect(status().isOk());
+    mockMvc.perform(get("/v1/members").param("username", "v1-cached"))
+            .andExpect(status().isOk());
+
+    assertThat(resultCache.stats().hitCount()).isEqualTo(hits + 1);
+  }
+
+  @Test
+  public void v3EstimateOverIsClamped() throws Exception {
+    mockMvc.perform(get("/v3/members").param("estimateOver", "2000000000"))
+            .andExpect(status().isOk());
+    mockMvc.perform(get("/v3/members").param("estimateOver", "0"))
+            .andExpect(status().isBadRequest());
+  }
+}
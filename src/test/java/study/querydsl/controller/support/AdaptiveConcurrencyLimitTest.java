@@ -0,0 +1,83 @@
+package study.querydsl.controller.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+  private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+  @Test
+  public void rejectOverLimit() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, THRESHOLD);
+
+    AdaptiveConcurrencyLimit.Permit first = limit.tryAcquire();
+    assertThat(first).isNotNull();
+    assertThat(limit.tryAcquire()).isNotNull();
+    assertThat(limit.tryAcquire()).isNull();
+
+    limit.release(first, -1, false);
+    assertThat(limit.getInFlight()).isEqualTo(1);
+    assertThat(limit.tryAcquire()).isNotNull();
+  }
+
+  @Test
+  public void slowRepositoryDecreasesLimit() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100, THRESHOLD);
+
+    for (int i = 0; i < 50; i++) {
+      limit.release(limit.tryAcquire(), SLOW, false);
+    }
+    assertThat(limit.getLimit()).isEqualTo(4);
+  }
+
+  @Test
+  public void concurrentSlowRequestsDecreaseOnce() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 100, THRESHOLD);
+
+    // 같은 혼잡 구간에 시작한 요청들이 모두 느려도 한 번만 줄인다
+    List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      permits.add(limit.tryAcquire());
+    }
+    for (AdaptiveConcurrencyLimit.Permit permit : permits) {
+      limit.release(permit, SLOW, false);
+    }
+    assertThat(limit.getLimit()).isEqualTo(18);
+
+    // 줄인 뒤에 시작한 요청은 다시 반영된다
+    limit.release(limit.tryAcquire(), SLOW, false);
+    assertThat(limit.getLimit()).isEqualTo(16);
+  }
+
+  @Test
+  public void fastRepositoryIncreasesLimitOnlyWhenUsed() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 100, THRESHOLD);
+
+    // 한도의 절반도 쓰지 않으면 늘리지 않는다
+    limit.release(limit.tryAcquire(), FAST, false);
+    assertThat(limit.getLimit()).isEqualTo(4);
+
+    List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      permits.add(limit.tryAcquire());
+    }
+    limit.release(permits.get(0), FAST, false);
+    assertThat(limit.getLimit()).isEqualTo(5);
+  }
+
+  @Test
+  public void failureDecreasesLimit() {
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, THRESHOLD);
+
+    limit.release(limit.tryAcquire(), -1, true);
+    assertThat(limit.getLimit()).isEqualTo(9);
+  }
+}
@@ -0,0 +1,93 @@
+package study.querydsl.controller.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConcurrencyLimitFilterTest {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  @Qualifier("interactiveConcurrencyLimit")
+  AdaptiveConcurrencyLimit interactiveLimit;
+
+  @Autowired
+  @Qualifier("exportConcurrencyLimit")
+  AdaptiveConcurrencyLimit exportLimit;
+
+  // 테스트가 직접 잡아 둔 한도. 끝나면 돌려준다
+  private final List<Held> held = new ArrayList<>();
+
+  @AfterEach
+  public void after() {
+    for (Held h : held) {
+      h.limit.release(h.permit, -1, false);
+    }
+  }
+
+  @Test
+  public void rejectWithRetryAfterWhenFull() throws Exception {
+    fill(interactiveLimit);
+    int rejected = interactiveLimit.getInFlight();
+
+    mockMvc.perform(get("/v2/members"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "1"));
+    assertThat(interactiveLimit.getInFlight()).isEqualTo(rejected);
+  }
+
+  @Test
+  public void exportHasSeparateLimit() throws Exception {
+    fill(interactiveLimit);
+
+    // 검색 한도가 꽉 차도 export 는 자기 한도로 실행된다
+    mockMvc.perform(get("/v1/members/export"))
+            .andExpect(status().isOk());
+
+    fill(exportLimit);
+    mockMvc.perform(get("/v1/members/export"))
+            .andExpect(status().isServiceUnavailable());
+  }
+
+  @Test
+  public void otherPathsAreNotLimited() throws Exception {
+    fill(interactiveLimit);
+    fill(exportLimit);
+
+    mockMvc.perform(get("/stats/count-cache"))
+            .andExpect(status().isOk());
+  }
+
+  private void fill(AdaptiveConcurrencyLimit limit) {
+    AdaptiveConcurrencyLimit.Permit permit;
+    while ((permit = limit.tryAcquire()) != null) {
+      held.add(new Held(limit, permit));
+    }
+  }
+
+  private static final class Held {
+    private final AdaptiveConcurrencyLimit limit;
+    private final AdaptiveConcurrencyLimit.Permit permit;
+
+    private Held(AdaptiveConcurrencyLimit limit, AdaptiveConcurrencyLimit.Permit permit) {
+      this.limit = limit;
+      this.permit = permit;
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package study.querydsl.controller.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 트랜잭션 경계에서 커넥션이 반납되는 것을 보기 위해 테스트 트랜잭션 없이 실행한다. early-release 프로필은 {@link EarlyReleaseProfileTest}
+ */
+@SpringBootTest
+class ConnectionHoldProfilerTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+
+  @Autowired
+  ConnectionHoldProfiler profiler;
+
+  TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.execute(status -> {
+      Team teamA = new Team("teamA");
+      em.persist(teamA);
+      em.persist(new Member("member1", 10, teamA));
+      em.persist(new Member("member2", 20, teamA));
+      return null;
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    transactionTemplate.execute(status -> {
+      em.createQuery("delete from Member").executeUpdate();
+      em.createQuery("delete from Team").executeUpdate();
+      return null;
+    });
+  }
+
+  @Test
+  public void connectionHold() {
+    profiler.begin();
+    memberJpaRepository.searchMember(allAges());
+    ConnectionHoldProfiler.RequestHold hold = profiler.end();
+
+    assertThat(hold.getConnections()).isGreaterThanOrEqualTo(1);
+    assertThat(hold.getSqlNanos()).isPositive();
+    assertThat(hold.getHoldNanos()).isGreaterThanOrEqualTo(hold.getSqlNanos());
+  }
+
+  private MemberSearchCondition allAges() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(0);
+    condition.setAgeLoe(100);
+    return condition;
+  }
+}
@@ -0,0 +1,141 @@
+package study.querydsl.controller.support;
+
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberJpaRepository;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * early-release 프로필: open-in-view 를 끄면 응답을 직렬화하기 전에 커넥션이 반납된다.
+ * 커밋된 데이터로 확인해야 하므로 테스트 트랜잭션 없이 실행한다.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("early-release")
+class EarlyReleaseProfileTest {
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  MemberJpaRepository memberJpaRepository;
+
+  @Autowired
+  OpenConnectionsBeforeBodyWrite beforeBodyWrite;
+
+  TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.execute(status -> {
+      Team teamA = new Team("teamA");
+      em.persist(teamA);
+      em.persist(new Member("member1", 10, teamA));
+      em.persist(new Member("member2", 20, teamA));
+      return null;
+    });
+    beforeBodyWrite.openConnections = -1;
+  }
+
+  @AfterEach
+  public void after() {
+    transactionTemplate.execute(status -> {
+      em.createQuery("delete from Member").executeUpdate();
+      em.createQuery("delete from Team").executeUpdate();
+      return null;
+    });
+  }
+
+  @Test
+  public void connectionReleasedBeforeSerialization() throws Exception {
+    mockMvc.perform(get("/v1/members").param("teamName", "teamA"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(2));
+
+    assertThat(beforeBodyWrite.openConnections).isEqualTo(0);
+  }
+
+  @Test
+  public void lazyAccessAfterRepositoryReturnFailsFast() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(0);
+    condition.setAgeLoe(100);
+    List<Member> result = memberJpaRepository.searchMember(condition);
+
+    assertThat(result).hasSize(2);
+    assertThatThrownBy(() -> result.get(0).getTeam().getName())
+            .isInstanceOf(LazyInitializationException.class);
+  }
+
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    OpenConnectionsBeforeBodyWrite openConnectionsBeforeBodyWrite(ConnectionHoldProfiler profiler) {
+      return new OpenConnectionsBeforeBodyWrite(profiler);
+    }
+  }
+
+  /**
+   * 응답 본문을 직렬화하기 직전에 요청이 잡고 있는 커넥션 수를 남긴다.
+   */
+  @ControllerAdvice
+  static class OpenConnectionsBeforeBodyWrite implements ResponseBodyAdvice<Object> {
+
+    private final ConnectionHoldProfiler profiler;
+    volatile int openConnections = -1;
+
+    OpenConnectionsBeforeBodyWrite(ConnectionHoldProfiler profiler) {
+      this.profiler = profiler;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+      return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+      openConnections = profiler.openConnections();
+      return body;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package study.querydsl.controller.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+class NPlusOneDetectorTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  MockMvc mockMvc;
+
+  @Autowired
+  NPlusOneDetector detector;
+
+  @Test
+  public void detectRepeatedSelect() {
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i <= detector.getThreshold(); i++) {
+      Member member = new Member("member" + i, i);
+      em.persist(member);
+      ids.add(member.getId());
+    }
+    em.flush();
+    em.clear();
+
+    detector.begin("test");
+    // 한 건씩 조회하는 루프 = 같은 모양의 select 반복
+    for (Long id : ids) {
+      em.find(Member.class, id);
+      em.clear();
+    }
+    List<NPlusOneDetector.Violation> violations = detector.end();
+
+    assertThat(violations).hasSize(1);
+    assertThat(violations.get(0).getCount()).isEqualTo(detector.getThreshold() + 1);
+    assertThat(violations.get(0).getCallSite()).contains("NPlusOneDetectorTest");
+  }
+
+  @Test
+  public void normalize() {
+    assertThat(NPlusOneDetector.normalize("/* load */ select m from member m where m.id in (?, ?,?) and m.name='a'  and m.age=10"))
+            .isEqualTo("select m from member m where m.id in (?) and m.name=? and m.age=?");
+  }
+
+  /**
+   * 테스트 설정은 strict 모드라서 N+1 이 생기면 요청이 NPlusOneException 으로 실패한다.
+   * /v5 와 export 까지 회원 엔드포인트 전부를 확인한다.
+   */
+  @Test
+  public void memberEndpointsHaveNoNPlusOne() throws Exception {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    for (int i = 0; i < 30; i++) {
+      em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+    }
+    em.flush();
+    em.clear();
+
+    mockMvc.perform(get("/v1/members")).andExpect(status().isOk());
+    mockMvc.perform(get("/v2/members").param("size", "5")).andExpect(status().isOk());
+    mockMvc.perform(get("/v3/members").param("teamName", "teamA")).andExpect(status().isOk());
+    mockMvc.perform(get("/v4/members").param("size", "5")).andExpect(status().isOk());
+    mockMvc.perform(get("/v5/members").param("size", "5")).andExpect(status().isOk());
+    mockMvc.perform(get("/v1/members/export").param("teamName", "teamB")).andExpect(status().isOk());
+  }
+
+  @Test
+  public void lazyLoadingLoopRejectedInStrictMode() throws Exception {
+    List<Long> teamIds = new ArrayList<>();
+    for (int i = 0; i <= detector.getThreshold(); i++) {
+      Team team = new Team("team" + i);
+      em.persist(team);
+      em.persist(new Member("member" + i, i, team));
+      teamIds.add(team.getId());
+    }
+    em.flush();
+    em.clear();
+
+    String ids = teamIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+    assertThatThrownBy(() -> mockMvc.perform(get("/test/n-plus-one/team-members").param("teamIds", ids)))
+            .isInstanceOf(NPlusOneException.class);
+  }
+
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    LazyLoopController lazyLoopController(EntityManager em) {
+      return new LazyLoopController(em);
+    }
+  }
+
+  /**
+   * 팀마다 lazy 컬렉션 Team.members 를 따로 초기화하는 전형적인 N+1
+   */
+  @RestController
+  static class LazyLoopController {
+
+    private final EntityManager em;
+
+    LazyLoopController(EntityManager em) {
+      this.em = em;
+    }
+
+    @GetMapping("/test/n-plus-one/team-members")
+    public int teamMemberCounts(@RequestParam List<Long> teamIds) {
+      int total = 0;
+      for (Long teamId : teamIds) {
+        // batch fetch 로 합쳐지지 않도록 한 팀씩 읽는다
+        em.clear();
+        total += em.find(Team.class, teamId).getMembers().size();
+      }
+      return total;
+    }
+  }
+}
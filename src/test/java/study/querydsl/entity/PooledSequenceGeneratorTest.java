@@ -0,0 +1,99 @@
+package study.querydsl.entity;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Transactional;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class PooledSequenceGeneratorTest {
+
+  static final int MEMBER_COUNT = 250;
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  EntityManagerFactory emf;
+
+  @Autowired
+  SequenceCallCounter sequenceCalls;
+
+  @Test
+  public void allocationSize() {
+    IdentifierGenerator generator = emf.unwrap(SessionFactoryImplementor.class)
+            .getMetamodel()
+            .entityPersister(Member.class)
+            .getIdentifierGenerator();
+
+    assertThat(generator).isInstanceOf(PooledSequenceGenerator.class);
+    assertThat(((PooledSequenceGenerator) generator).getOptimizer().getIncrementSize()).isEqualTo(100);
+  }
+
+  @Test
+  public void sequenceRoundTripsPerAllocation() {
+    sequenceCalls.reset();
+
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < MEMBER_COUNT; i++) {
+      Member member = new Member("pooled" + i, i);
+      em.persist(member);
+      ids.add(member.getId());
+    }
+    em.flush();
+
+    assertThat(ids).hasSize(MEMBER_COUNT);
+    // 앞선 테스트가 남긴 id 풀을 먼저 쓰므로 할당 횟수는 많아야 올림(250 / 100)
+    assertThat(sequenceCalls.get()).isBetween(MEMBER_COUNT / 100, (MEMBER_COUNT + 99) / 100);
+  }
+
+  @TestConfiguration
+  static class Config {
+
+    @Bean
+    SequenceCallCounter sequenceCallCounter() {
+      return new SequenceCallCounter();
+    }
+  }
+
+  /**
+   * member_seq 에서 다음 값을 읽는 SQL 수
+   */
+  static class SequenceCallCounter extends SimpleJdbcEventListener {
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+      String sql = statementInformation.getSql();
+      if (sql != null && sql.toLowerCase(Locale.ROOT).contains("member_seq")) {
+        count.incrementAndGet();
+      }
+    }
+
+    void reset() {
+      count.set(0);
+    }
+
+    int get() {
+      return count.get();
+    }
+  }
+}
@@ -1,8 +1,15 @@
 package study.querydsl.repository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.BatchSaveResult;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
@@ -11,7 +18,10 @@ import study.querydsl.entity.Team;
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.*;
 //import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +36,9 @@ class MemberJpaRepositoryTest {
   @Autowired
   MemberJpaRepository memberJpaRepository;
 
+  @Autowired
+  MeterRegistry meterRegistry;
+
   // JPQL 영속성
   @Test
   public void basicTest() {
@@ -60,6 +73,72 @@ class MemberJpaRepositoryTest {
             .containsExactly(member);
   }
 
+  @Test
+  public void saveAllTest() {
+    BatchSaveResult result = memberJpaRepository.saveAll(
+            IntStream.range(0, 250).mapToObj(i -> new Member("member" + i, i)));
+
+    // application.yml 의 hibernate.jdbc.batch_size: 100
+    assertThat(result.getStatementCount()).isEqualTo(250);
+    assertThat(result.getBatchSize()).isEqualTo(100);
+    assertThat(result.getBatchCount()).isEqualTo(3);
+    assertThat(memberJpaRepository.findAll()).hasSize(250);
+  }
+
+  @Test
+  public void saveAllClosesStream() {
+    AtomicBoolean closed = new AtomicBoolean();
+    memberJpaRepository.saveAll(
+            IntStream.range(0, 3).mapToObj(i -> new Member("member" + i, i)).onClose(() -> closed.set(true)));
+
+    assertThat(closed).isTrue();
+  }
+
+  @Test
+  public void teamSecondLevelCache() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.flush();
+    em.clear();
+
+    // 처음 lazy 로딩한 팀이 2차 캐시에 들어간다
+    assertThat(memberJpaRepository.findAll().get(0).getTeam().getName()).isEqualTo("teamA");
+    em.clear();
+
+    Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    long hits = statistics.getSecondLevelCacheHitCount();
+
+    // 영속성 컨텍스트를 비운 뒤 다시 lazy 로딩하면 DB 대신 2차 캐시에서 읽는다
+    assertThat(memberJpaRepository.findAll().get(0).getTeam().getName()).isEqualTo("teamA");
+    assertThat(statistics.getSecondLevelCacheHitCount()).isGreaterThan(hits);
+  }
+
+  @Test
+  public void teamMembersCollectionCacheEvictedByOwningSide() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    em.persist(new Member("member1", 10, teamA));
+    em.flush();
+    em.clear();
+
+    // 컬렉션이 2차 캐시에 들어간다
+    assertThat(em.find(Team.class, teamA.getId()).getMembers()).hasSize(1);
+    em.clear();
+
+    // 컬렉션에 add 하지 않고 member.team 만 설정
+    Member member2 = new Member("member2", 20);
+    member2.setTeam(em.find(Team.class, teamA.getId()));
+    em.persist(member2);
+    em.flush();
+    em.clear();
+
+    assertThat(em.find(Team.class, teamA.getId()).getMembers())
+            .extracting("username")
+            .containsExactlyInAnyOrder("member1", "member2");
+  }
+
   @Test
   public void searchTest() {
     Team teamA = new Team("teamA");
@@ -90,4 +169,77 @@ class MemberJpaRepositoryTest {
     assertThat(result).extracting("username").containsExactly("member3", "member4");
   }
 
+  @Test
+  public void searchMemberInReadWriteTransaction() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    for (int i = 0; i < 10; i++) {
+      em.persist(new Member("member" + i, i, teamA));
+    }
+    em.flush();
+    em.clear();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(0);
+    condition.setAgeLoe(100);
+    List<Member> result = memberJpaRepository.searchMember(condition);
+
+    // 쓰기 트랜잭션 안에서 조회한 엔티티는 읽기 전용이 아니다
+    SessionImplementor session = em.unwrap(SessionImplementor.class);
+    PersistenceContext persistenceContext = session.getPersistenceContext();
+    assertThat(result).hasSize(10);
+    assertThat(result).allSatisfy(m -> {
+      assertThat(session.isReadOnly(m)).isFalse();
+      assertThat(persistenceContext.getEntry(m).getLoadedState()).isNotNull();
+    });
+
+    // 고친 내용은 그대로 flush 된다
+    Member first = result.get(0);
+    first.setUsername("changed");
+    em.flush();
+    em.clear();
+    assertThat(em.find(Member.class, first.getId()).getUsername()).isEqualTo("changed");
+  }
+
+  @Test
+  public void repositoryMetrics() {
+    em.persist(new Member("member1", 10));
+    em.persist(new Member("member2", 20));
+
+    memberJpaRepository.search(new MemberSearchCondition());
+
+    Timer calls = meterRegistry.find("member.repository.calls")
+            .tags("repository", "MemberJpaRepository", "method", "search")
+            .timer();
+    assertThat(calls).isNotNull();
+    assertThat(calls.count()).isGreaterThanOrEqualTo(1);
+    assertThat(meterRegistry.find("member.repository.statements")
+            .tags("method", "search")
+            .summary()
+            .max()).isGreaterThanOrEqualTo(1);
+  }
+
+  @Test
+  public void exportTest() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+    em.flush();
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    List<MemberTeamDto> exported = new ArrayList<>();
+    long count = memberJpaRepository.export(condition, 1, exported::add);
+
+    assertThat(count).isEqualTo(2);
+    assertThat(exported).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.MemberSearchQueryCache;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class MemberQueryRepositoryTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  MemberQueryRepository memberQueryRepository;
+
+  @Autowired
+  MemberSearchQueryCache searchQueryCache;
+
+  @Test
+  public void searchTest() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(35);
+
+    List<MemberTeamDto> first = memberQueryRepository.search(condition);
+    long hits = searchQueryCache.getHitCount();
+
+    // 값만 다르고 모양이 같은 조건은 컴파일된 쿼리를 재사용
+    condition.setAgeGoe(25);
+    List<MemberTeamDto> second = memberQueryRepository.search(condition);
+
+    assertThat(first).extracting("username").containsExactly("member4");
+    assertThat(second).extracting("username").containsExactlyInAnyOrder("member3", "member4");
+    assertThat(searchQueryCache.getHitCount()).isEqualTo(hits + 1);
+  }
+}
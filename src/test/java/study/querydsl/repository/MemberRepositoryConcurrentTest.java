@@ -0,0 +1,166 @@
+package study.querydsl.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.MemberCountCache;
+import study.querydsl.repository.support.MemberSearchResultCache;
+import study.querydsl.repository.support.MemberSearchSingleFlight;
+import study.querydsl.repository.support.TeamIdCache;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * searchPageConcurrent 는 작업 스레드마다 새 트랜잭션으로 읽으므로 테스트 트랜잭션 없이 데이터를 커밋해 둔다.
+ */
+@SpringBootTest
+class MemberRepositoryConcurrentTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  MemberRepository memberRepository;
+
+  @Autowired
+  MemberCountCache countCache;
+
+  @Autowired
+  MemberSearchResultCache resultCache;
+
+  @Autowired
+  MemberSearchSingleFlight singleFlight;
+
+  @Autowired
+  TeamIdCache teamIdCache;
+
+  TransactionTemplate transactionTemplate;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.execute(status -> {
+      Team teamA = new Team("teamA");
+      Team teamB = new Team("teamB");
+      em.persist(teamA);
+      em.persist(teamB);
+      for (int i = 0; i < 10; i++) {
+        em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+      }
+      return null;
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    transactionTemplate.execute(status -> {
+      em.createQuery("delete from Member").executeUpdate();
+      em.createQuery("delete from Team").executeUpdate();
+      return null;
+    });
+  }
+
+  @Test
+  public void sameResultAsComplex() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(20);
+    PageRequest pageable = PageRequest.of(1, 2);
+
+    Page<MemberTeamDto> concurrent = memberRepository.searchPageConcurrent(condition, pageable);
+    Page<MemberTeamDto> complex = memberRepository.searchPageComplex(condition, pageable);
+
+    assertThat(concurrent.getTotalElements()).isEqualTo(complex.getTotalElements()).isEqualTo(4);
+    assertThat(concurrent.getContent()).extracting("username")
+            .containsExactlyInAnyOrderElementsOf(complex.map(MemberTeamDto::getUsername).getContent());
+  }
+
+  @Test
+  public void fallBackToCallerWhenExecutorIsFull() throws Exception {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(0);
+    executor.initialize();
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      // 하나뿐인 작업 스레드를 막아 두면 이후 작업은 모두 거절된다
+      executor.execute(() -> {
+        try {
+          release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+
+      MemberRepositoryImpl repository = repository(executor, transactionManager);
+      Page<MemberTeamDto> result = repository.searchPageConcurrent(new MemberSearchCondition(), PageRequest.of(0, 3));
+
+      assertThat(result.getContent()).hasSize(3);
+      assertThat(result.getTotalElements()).isEqualTo(10);
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void failurePropagatesOriginalException() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(2);
+    executor.initialize();
+    try {
+      MemberRepositoryImpl repository = repository(executor, new FailingTransactionManager());
+
+      assertThatThrownBy(() -> repository.searchPageConcurrent(new MemberSearchCondition(), PageRequest.of(0, 3)))
+              .isInstanceOf(IllegalStateException.class)
+              .hasMessage("db down");
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private MemberRepositoryImpl repository(ThreadPoolTaskExecutor executor, PlatformTransactionManager txManager) {
+    MemberRepositoryImpl repository = new MemberRepositoryImpl(
+            em, txManager, executor, countCache, resultCache, singleFlight, teamIdCache);
+    repository.setEntityManager(em);
+    return repository;
+  }
+
+  // 작업 스레드에서 트랜잭션을 열 때 실패하는 상황
+  private static class FailingTransactionManager implements PlatformTransactionManager {
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+      throw new IllegalStateException("db down");
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) {
+    }
+  }
+}
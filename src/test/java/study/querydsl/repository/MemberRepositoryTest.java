@@ -8,17 +8,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.ApproximatePage;
+import study.querydsl.dto.MemberKeysetPage;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.MemberSearchResultCache;
 
 import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +46,12 @@ class MemberRepositoryTest {
   @Autowired
   MemberRepository memberRepository;
 
+  @Autowired
+  MemberSearchResultCache resultCache;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
   // JPQL 영속성
   @Test
   public void basicTest() {
@@ -113,6 +129,206 @@ class MemberRepositoryTest {
     assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
   }
 
+  @Test
+  public void searchPageComplexTeamFilter() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    // count 쿼리도 team 조건이 있으면 join 을 추가해야 한다
+    Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+
+    assertThat(result.getTotalElements()).isEqualTo(2);
+    assertThat(result.getContent()).extracting("teamName").containsExactly("teamB");
+  }
+
+  @Test
+  public void searchPageComplexDeferredJoin() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+    List<Long> ids = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      Member member = new Member("member" + i, i, i % 2 == 0 ? teamA : teamB);
+      em.persist(member);
+      ids.add(member.getId());
+    }
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+
+    Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(1, 2), PageFetchStrategy.DEFERRED_JOIN);
+
+    // teamB = member1, 3, 5, 7, 9 를 id 순서로 두 번째 페이지
+    assertThat(result.getContent()).extracting("memberId").containsExactly(ids.get(5), ids.get(7));
+    assertThat(result.getContent()).extracting("teamName").containsOnly("teamB");
+    assertThat(result.getTotalElements()).isEqualTo(5);
+  }
+
+  @Test
+  public void searchKeyset() {
+    Team teamA = new Team("teamA");
+    Team teamB = new Team("teamB");
+    em.persist(teamA);
+    em.persist(teamB);
+
+    em.persist(new Member("member1", 10, teamA));
+    em.persist(new Member("member2", 20, teamA));
+    em.persist(new Member("member3", 30, teamB));
+    em.persist(new Member("member4", 40, teamB));
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    MemberKeysetPage first = memberRepository.searchKeyset(condition, null, 3);
+    assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+    assertThat(first.isHasNext()).isTrue();
+
+    MemberKeysetPage second = memberRepository.searchKeyset(condition, first.getNextCursor(), 3);
+    assertThat(second.getContent()).extracting("username").containsExactly("member4");
+    assertThat(second.isHasNext()).isFalse();
+    assertThat(second.getNextCursor()).isNull();
+  }
+
+  @Test
+  public void searchKeysetInvalidSize() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    assertThrows(IllegalArgumentException.class, () -> memberRepository.searchKeyset(condition, null, 0));
+    assertThrows(IllegalArgumentException.class,
+            () -> memberRepository.searchKeyset(condition, null, MemberRepositoryCustom.MAX_KEYSET_SIZE + 1));
+    assertThat(memberRepository.searchKeyset(condition, null, MemberRepositoryCustom.MAX_KEYSET_SIZE).getContent())
+            .hasSizeLessThanOrEqualTo(MemberRepositoryCustom.MAX_KEYSET_SIZE);
+  }
+
+  @Test
+  public void searchSlice() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    for (int i = 0; i < 5; i++) {
+      em.persist(new Member("member" + i, i, teamA));
+    }
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+
+    Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, PageRequest.of(0, 3));
+    assertThat(first.getContent()).hasSize(3);
+    assertThat(first.hasNext()).isTrue();
+
+    Slice<MemberTeamDto> last = memberRepository.searchSlice(condition, PageRequest.of(1, 3));
+    assertThat(last.getContent()).hasSize(2);
+    assertThat(last.hasNext()).isFalse();
+  }
+
+  @Test
+  public void searchPageEstimated() {
+    Team teamA = new Team("teamA");
+    em.persist(teamA);
+    for (int i = 0; i < 10; i++) {
+      em.persist(new Member("member" + i, i, teamA));
+    }
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+
+    ApproximatePage<MemberTeamDto> estimated =
+            (ApproximatePage<MemberTeamDto>) memberRepository.searchPageEstimated(condition, PageRequest.of(0, 3), 5);
+    assertThat(estimated.isApproximate()).isTrue();
+    assertThat(estimated.getTotalElements()).isEqualTo(5);
+
+    ApproximatePage<MemberTeamDto> exact =
+            (ApproximatePage<MemberTeamDto>) memberRepository.searchPageEstimated(condition, PageRequest.of(0, 3), 100);
+    assertThat(exact.isApproximate()).isFalse();
+    assertThat(exact.getTotalElements()).isEqualTo(10);
+  }
+
+  @Test
+  public void searchPageEstimatedInvalidMaxCount() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    assertThrows(IllegalArgumentException.class,
+            () -> memberRepository.searchPageEstimated(condition, PageRequest.of(0, 3), 0));
+  }
+
+  @Test
+  public void searchPageEstimatedMaxCountCap() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    assertThrows(IllegalArgumentException.class, () -> memberRepository.searchPageEstimated(
+            condition, PageRequest.of(0, 3), MemberRepositoryCustom.MAX_ESTIMATE_COUNT + 1));
+    assertThrows(IllegalArgumentException.class,
+            () -> memberRepository.searchPageEstimated(condition, PageRequest.of(0, 3), Integer.MAX_VALUE));
+
+    // 상한 그대로는 센다
+    Page<MemberTeamDto> page = memberRepository.searchPageEstimated(
+            condition, PageRequest.of(0, 3), MemberRepositoryCustom.MAX_ESTIMATE_COUNT);
+    assertThat(((ApproximatePage<MemberTeamDto>) page).isApproximate()).isFalse();
+  }
+
+  @Test
+  public void searchResultCacheBulkInvalidation() {
+    // 쓰기 트랜잭션 안에서는 캐시를 쓰지 않으므로 별도 읽기 전용 트랜잭션에서 확인
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    AtomicInteger loads = new AtomicInteger();
+    Supplier<List<MemberTeamDto>> loader = () -> {
+      loads.incrementAndGet();
+      return new ArrayList<>();
+    };
+
+    readOnly.execute(status -> resultCache.get("test", condition, null, loader));
+    readOnly.execute(status -> resultCache.get("test", condition, null, loader));
+    assertThat(loads.get()).isEqualTo(1);
+
+    // 엔티티 이벤트가 없는 bulk update 도 커밋되면 캐시를 비운다 (바뀌는 행이 없도록 id 조건을 건다)
+    TransactionTemplate write = new TransactionTemplate(transactionManager);
+    write.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    write.execute(status -> new JPAQueryFactory(em)
+            .update(member)
+            .set(member.age, member.age.add(1))
+            .where(member.id.eq(-1L))
+            .execute());
+
+    readOnly.execute(status -> resultCache.get("test", condition, null, loader));
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void searchResultCacheHitIsNotMutatedByCaller() {
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+    MemberSearchCondition condition = new MemberSearchCondition();
+    AtomicInteger loads = new AtomicInteger();
+    Supplier<List<MemberTeamDto>> loader = () -> {
+      loads.incrementAndGet();
+      List<MemberTeamDto> result = new ArrayList<>();
+      result.add(new MemberTeamDto(1L, "member1", 10, 1L, "teamA"));
+      result.add(new MemberTeamDto(2L, "member2", 20, 1L, "teamA"));
+      return result;
+    };
+
+    // 첫 호출이 받은 목록을 고치려 해도 다음 히트에는 영향이 없다
+    List<MemberTeamDto> first = readOnly.execute(status -> resultCache.get("unmodifiable", condition, null, loader));
+    assertThrows(UnsupportedOperationException.class, () -> first.remove(0));
+    assertThrows(UnsupportedOperationException.class, () -> first.sort(null));
+
+    List<MemberTeamDto> second = readOnly.execute(status -> resultCache.get("unmodifiable", condition, null, loader));
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(second).extracting("username").containsExactly("member1", "member2");
+  }
+
   @Test
   public void querydslPredicateExecutorTest() {
     Team teamA = new Team("teamA");
@@ -0,0 +1,71 @@
+package study.querydsl.repository.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberBitmapIndexTest {
+
+  // ordinal = index
+  private final int[] ages = {5, 15, 19, 20, 29, 30, 45};
+  private final int[] teamCodes = {0, 0, 1, 1, -1, 2, 0};
+
+  private MemberBitmapIndex index() {
+    MemberBitmapIndex index = new MemberBitmapIndex();
+    for (int i = 0; i < ages.length; i++) {
+      index.add(i, ages[i], teamCodes[i]);
+    }
+    return index;
+  }
+
+  @Test
+  public void ageRangeAcrossBucketEdges() {
+    MemberBitmapIndex index = index();
+
+    // 10~19 구간 일부 + 20~29 구간 전체 + 30~39 구간 일부
+    RoaringBitmap result = index.select(null, 19, 30, ages);
+
+    assertThat(result.toArray()).containsExactly(2, 3, 4, 5);
+  }
+
+  @Test
+  public void teamAndAge() {
+    MemberBitmapIndex index = index();
+    boolean[] teamMask = {true, false, true};
+
+    RoaringBitmap result = index.select(teamMask, 10, Integer.MAX_VALUE, ages);
+
+    assertThat(result.toArray()).containsExactly(1, 5, 6);
+    assertThat(result.getCardinality()).isEqualTo(3);
+  }
+
+  @Test
+  public void noConditionReturnsLive() {
+    MemberBitmapIndex index = index();
+    index.remove(4, ages[4], teamCodes[4]);
+
+    assertThat(index.select(null, Integer.MIN_VALUE, Integer.MAX_VALUE, ages).getCardinality()).isEqualTo(6);
+  }
+
+  @Test
+  public void updateMovesOrdinal() {
+    MemberBitmapIndex index = index();
+
+    // ordinal 0: 5살 team0 -> 25살 team1
+    index.remove(0, ages[0], teamCodes[0]);
+    ages[0] = 25;
+    index.add(0, 25, 1);
+
+    assertThat(index.select(new boolean[]{true}, Integer.MIN_VALUE, Integer.MAX_VALUE, ages).toArray()).containsExactly(1, 6);
+    assertThat(index.select(new boolean[]{false, true}, 20, 29, ages).toArray()).containsExactly(0, 3);
+  }
+
+  @Test
+  public void countByTeamCode() {
+    MemberBitmapIndex index = index();
+    RoaringBitmap adults = index.select(null, 20, Integer.MAX_VALUE, ages);
+
+    assertThat(index.countByTeamCode(adults, 3)).containsExactly(1, 1, 1);
+  }
+}
@@ -0,0 +1,123 @@
+package study.querydsl.repository.snapshot;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커밋된 변경만 스냅샷에 반영되므로 테스트 트랜잭션 없이 실제로 커밋한다.
+ */
+@SpringBootTest(properties = "member.snapshot.enabled=true")
+class MemberSnapshotServiceTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  MemberSnapshotService snapshotService;
+
+  TransactionTemplate transactionTemplate;
+  Long teamId;
+
+  @BeforeEach
+  public void before() throws Exception {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    teamId = transactionTemplate.execute(status -> {
+      Team teamA = new Team("teamA");
+      em.persist(teamA);
+      em.persist(new Member("member1", 10, teamA));
+      return teamA.getId();
+    });
+    snapshotService.reload();
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+  }
+
+  @AfterEach
+  public void after() {
+    transactionTemplate.execute(status -> {
+      em.createQuery("delete from Member").executeUpdate();
+      em.createQuery("delete from Team").executeUpdate();
+      return null;
+    });
+  }
+
+  @Test
+  public void insertUpdateDelete() throws Exception {
+    Long memberId = transactionTemplate.execute(status -> {
+      Member member = new Member("member2", 20, em.getReference(Team.class, teamId));
+      em.persist(member);
+      return member.getId();
+    });
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+    assertThat(search("member2")).extracting("age").containsExactly(20);
+
+    transactionTemplate.execute(status -> {
+      em.find(Member.class, memberId).setAge(25);
+      return null;
+    });
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+    assertThat(search("member2")).extracting("age").containsExactly(25);
+
+    transactionTemplate.execute(status -> {
+      em.remove(em.find(Member.class, memberId));
+      return null;
+    });
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+    assertThat(search("member2")).isEmpty();
+    assertThat(search("member1")).hasSize(1);
+  }
+
+  @Test
+  public void rollbackIsNotApplied() throws Exception {
+    transactionTemplate.execute(status -> {
+      em.persist(new Member("member2", 20, em.getReference(Team.class, teamId)));
+      status.setRollbackOnly();
+      return null;
+    });
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+
+    assertThat(search("member2")).isEmpty();
+  }
+
+  @Test
+  public void bulkUpdateReloads() throws Exception {
+    transactionTemplate.execute(status -> em.createQuery("update Member m set m.age = m.age + 1").executeUpdate());
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+
+    assertThat(search("member1")).extracting("age").containsExactly(11);
+  }
+
+  @Test
+  public void teamRename() throws Exception {
+    transactionTemplate.execute(status -> {
+      em.find(Team.class, teamId).setName("teamB");
+      return null;
+    });
+    snapshotService.awaitApplied(10, TimeUnit.SECONDS);
+
+    assertThat(search("member1")).extracting("teamName").containsExactly("teamB");
+  }
+
+  private List<MemberTeamDto> search(String username) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername(username);
+    return snapshotService.search(condition);
+  }
+}
@@ -0,0 +1,132 @@
+package study.querydsl.repository.snapshot;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberSnapshotTest {
+
+  MemberSnapshot snapshot;
+
+  @BeforeEach
+  public void before() {
+    snapshot = new MemberSnapshot();
+    snapshot.putTeam(1L, "teamA");
+    snapshot.putTeam(2L, "teamB");
+    snapshot.putMember(10L, "member1", 10, 1L);
+    snapshot.putMember(11L, "member2", 20, 1L);
+    snapshot.putMember(12L, "member3", 30, 2L);
+    snapshot.putMember(13L, "member4", 40, 2L);
+    snapshot.putMember(14L, "member5", 50, null);
+  }
+
+  @Test
+  public void search() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(35);
+    condition.setAgeLoe(40);
+
+    List<MemberTeamDto> result = snapshot.search(condition);
+
+    assertThat(result).extracting("username").containsExactly("member4");
+    assertThat(result.get(0).getTeamId()).isEqualTo(2L);
+    assertThat(result.get(0).getTeamName()).isEqualTo("teamB");
+  }
+
+  @Test
+  public void searchByUsername() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    // 사전에서 꺼낸 인스턴스와 다른 String 이어도 찾는다
+    condition.setUsername(new String("member5"));
+    assertThat(snapshot.search(condition)).extracting("memberId").containsExactly(14L);
+
+    condition.setUsername("nobody");
+    assertThat(snapshot.search(condition)).isEmpty();
+  }
+
+  @Test
+  public void searchPageAndCount() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+
+    Page<MemberTeamDto> page = snapshot.searchPage(condition, PageRequest.of(1, 2));
+
+    assertThat(page.getContent()).extracting("username").containsExactly("member4", "member5");
+    assertThat(page.getTotalElements()).isEqualTo(4);
+    assertThat(snapshot.count(condition)).isEqualTo(4);
+  }
+
+  @Test
+  public void incrementalChanges() {
+    MemberSearchCondition teamA = new MemberSearchCondition();
+    teamA.setTeamName("teamA");
+
+    // 팀 이동, 삭제, 추가, 팀 이름 변경
+    snapshot.putMember(12L, "member3", 30, 1L);
+    snapshot.removeMember(10L);
+    snapshot.putMember(15L, "member6", 60, 1L);
+    assertThat(snapshot.search(teamA)).extracting("username").containsExactly("member2", "member3", "member6");
+
+    snapshot.putTeam(1L, "teamC");
+    assertThat(snapshot.count(teamA)).isZero();
+    assertThat(snapshot.size()).isEqualTo(5);
+  }
+
+  @Test
+  public void countByTeam() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(20);
+
+    assertThat(snapshot.countByTeam(condition))
+            .containsEntry("teamA", 1L)
+            .containsEntry("teamB", 2L)
+            .hasSize(2);
+  }
+
+  @Test
+  public void countByTeamWithUsername() {
+    snapshot.putMember(15L, "member1", 35, 2L);
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername("member1");
+
+    assertThat(snapshot.countByTeam(condition))
+            .containsEntry("teamA", 1L)
+            .containsEntry("teamB", 1L)
+            .hasSize(2);
+
+    condition.setAgeGoe(20);
+    assertThat(snapshot.countByTeam(condition))
+            .containsEntry("teamB", 1L)
+            .hasSize(1);
+  }
+
+  @Test
+  public void emptyAgeRange() {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setAgeGoe(40);
+    condition.setAgeLoe(30);
+
+    assertThat(snapshot.count(condition)).isZero();
+  }
+
+  @Test
+  public void growBeyondInitialCapacity() {
+    for (long id = 100; id < 5100; id++) {
+      snapshot.putMember(id, "bulk" + id, (int) (id % 100), id % 2 == 0 ? 1L : 2L);
+    }
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setTeamName("teamA");
+    condition.setAgeLoe(9);
+
+    // 짝수 id 중 id % 100 <= 9 = 100 단위마다 5 명 * 50 (기존 teamA 회원은 나이가 10 이상)
+    assertThat(snapshot.count(condition)).isEqualTo(250);
+  }
+}
@@ -0,0 +1,74 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import study.querydsl.entity.Member;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkStatementInspectorTest {
+
+  private final List<Object> events = new ArrayList<>();
+  private final BulkStatementInspector inspector = new BulkStatementInspector(new EntityChangeCollector(events::add));
+
+  BulkStatementInspectorTest() {
+    inspector.setEntityTypeByTable(Collections.singletonMap("member", Member.class));
+  }
+
+  @Test
+  public void dmlOutsideFlushIsBulk() {
+    inspector.inspect("/* update Member m set m.age = m.age + 1 */ update member set age=age+1");
+
+    assertThat(events).hasSize(1);
+    EntityChangedEvent event = (EntityChangedEvent) events.get(0);
+    assertThat(event.isAbout(Member.class)).isTrue();
+    assertThat(event.isIdsKnown(Member.class)).isFalse();
+  }
+
+  @Test
+  public void dmlInsideFlushIsIgnored() {
+    boolean previous = inspector.flushStarted();
+    inspector.inspect("insert into member (age, team_id, username) values (?, ?, ?)");
+    inspector.flushFinished(previous);
+
+    assertThat(events).isEmpty();
+  }
+
+  @Test
+  public void flushStateRestoredAfterFailedFlush() {
+    boolean previous = inspector.flushStarted();
+    try {
+      throw new IllegalStateException("flush failed");
+    } catch (IllegalStateException e) {
+      // flush 리스너는 finally 로 되돌린다
+    } finally {
+      inspector.flushFinished(previous);
+    }
+
+    inspector.inspect("delete from member where member_id=?");
+    assertThat(events).hasSize(1);
+  }
+
+  @Test
+  public void nestedFlushKeepsOuterState() {
+    boolean outer = inspector.flushStarted();
+    boolean inner = inspector.flushStarted();
+    inspector.flushFinished(inner);
+
+    inspector.inspect("update member set age=? where member_id=?");
+    assertThat(events).isEmpty();
+
+    inspector.flushFinished(outer);
+    inspector.inspect("update member set age=? where member_id=?");
+    assertThat(events).hasSize(1);
+  }
+
+  @Test
+  public void selectIsNotDml() {
+    assertThat(BulkStatementInspector.dmlTable("select * from member")).isNull();
+    assertThat(BulkStatementInspector.dmlTable("/* comment */ insert into member(age) values (?)")).isEqualTo("member");
+  }
+}
@@ -0,0 +1,92 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.query.spi.HQLQueryPlan;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.repository.support.MemberSearchQueryCache.*;
+
+@SpringBootTest(properties = "member.index-advisor.enabled=true")
+class IndexAdvisorTest {
+
+  @Autowired
+  EntityManagerFactory emf;
+
+  @Autowired
+  MemberSearchQueryCache searchQueryCache;
+
+  @Autowired
+  IndexAdvisor indexAdvisor;
+
+  @Test
+  public void sampleValuesFollowSqlPositions() {
+    // 예시 값 -> 그 값이 들어가야 하는 SQL 조건
+    Map<Object, String> expected = new HashMap<>();
+    expected.put("member1", "username=");
+    expected.put("teamA", "name=");
+    expected.put(1L, "id=");
+    expected.put(20, "age>=");
+    expected.put(30, "age<=");
+
+    SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+    for (int shape = 1; shape < SHAPE_COUNT; shape++) {
+      if ((shape & TEAM_NAME) != 0 && (shape & TEAM_ID) != 0) {
+        continue;
+      }
+      HQLQueryPlan plan = sessionFactory.getQueryPlanCache()
+              .getHQLQueryPlan(searchQueryCache.jpqlOf(shape), false, Collections.emptyMap());
+      for (QueryTranslator translator : plan.getTranslators()) {
+        String sql = translator.getSQLString();
+        Map<Integer, Object> values = IndexAdvisor.sampleValues(translator, searchQueryCache.parameterNamesOf(shape));
+
+        assertThat(values).hasSize(Integer.bitCount(shape));
+        values.forEach((position, value) ->
+                assertThat(beforePlaceholder(sql, position)).as("shape %d, ?%d in %s", shape, position, sql)
+                        .endsWith(expected.get(value)));
+      }
+    }
+  }
+
+  @Test
+  public void adviseSkipsIndexedShapes() {
+    List<String> scans = indexAdvisor.advise();
+
+    // idx_member_username, idx_member_age, idx_member_team_age 로 찾는 모양
+    assertThat(scans).noneMatch(scan -> scan.startsWith("shape [username] "));
+    assertThat(scans).noneMatch(scan -> scan.startsWith("shape [ageGoe] "));
+    assertThat(scans).noneMatch(scan -> scan.startsWith("shape [ageGoe, ageLoe] "));
+    assertThat(scans).noneMatch(scan -> scan.startsWith("shape [teamId] "));
+    assertThat(scans).noneMatch(scan -> scan.startsWith("shape [teamId, ageGoe] "));
+  }
+
+  @Test
+  public void unindexedPredicateIsReported() {
+    Map<String, String> parameterNames = Collections.singletonMap("username", "username");
+
+    // 컬럼에 함수를 씌우면 idx_member_username 을 쓸 수 없다
+    assertThat(indexAdvisor.tableScanSql(
+            "select m from Member m where lower(m.username) = :username", parameterNames)).isNotNull();
+    assertThat(indexAdvisor.tableScanSql(
+            "select m from Member m where m.username = :username", parameterNames)).isNull();
+  }
+
+  // n 번째 ? 앞의 SQL, 공백 제거
+  private static String beforePlaceholder(String sql, int n) {
+    int index = -1;
+    for (int i = 0; i < n; i++) {
+      index = sql.indexOf('?', index + 1);
+    }
+    assertThat(index).isGreaterThanOrEqualTo(0);
+    return sql.substring(0, index).replaceAll("\\s", "");
+  }
+}
@@ -0,0 +1,154 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MemberSearchSingleFlightTest {
+
+  private final MemberSearchResultCache resultCache = new MemberSearchResultCache(1000, 60);
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @AfterEach
+  public void after() {
+    release.countDown();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentIdenticalCallsShareOneLoad() throws Exception {
+    MemberSearchSingleFlight singleFlight = singleFlight(10_000);
+    Supplier<List<MemberTeamDto>> loader = blockingLoader(() -> members("member4"));
+
+    List<Future<List<MemberTeamDto>>> calls = new ArrayList<>();
+    calls.add(executor.submit(() -> singleFlight.execute("test", condition(null), null, loader)));
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // 빈 문자열 조건은 정규화되어 같은 키
+    for (int i = 0; i < 3; i++) {
+      calls.add(executor.submit(() -> singleFlight.execute("test", condition(""), null, loader)));
+    }
+    awaitFollowers(singleFlight, 3);
+    release.countDown();
+
+    List<MemberTeamDto> shared = calls.get(0).get(10, TimeUnit.SECONDS);
+    for (Future<List<MemberTeamDto>> call : calls) {
+      assertThat(call.get(10, TimeUnit.SECONDS)).isSameAs(shared);
+    }
+    assertThat(shared).extracting("username").containsExactly("member4");
+    // 같은 인스턴스를 나눠 받으므로 한 호출이 목록을 고칠 수 없다
+    assertThatThrownBy(() -> shared.remove(0)).isInstanceOf(UnsupportedOperationException.class);
+    assertThat(loads.get()).isEqualTo(1);
+    assertThat(singleFlight.getCoalescingRatio()).isEqualTo(0.75);
+  }
+
+  @Test
+  public void leaderFailurePropagatesToFollowers() throws Exception {
+    MemberSearchSingleFlight singleFlight = singleFlight(10_000);
+    Supplier<List<MemberTeamDto>> loader = blockingLoader(() -> {
+      throw new IllegalStateException("db down");
+    });
+
+    Future<List<MemberTeamDto>> leader = executor.submit(() -> singleFlight.execute("test", condition(null), null, loader));
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+    Future<List<MemberTeamDto>> follower = executor.submit(() -> singleFlight.execute("test", condition(null), null, loader));
+    awaitFollowers(singleFlight, 1);
+    release.countDown();
+
+    assertThatThrownBy(() -> leader.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> follower.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class)
+            .hasRootCauseMessage("db down");
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void callAfterInvalidationDoesNotJoinOlderFlight() throws Exception {
+    MemberSearchSingleFlight singleFlight = singleFlight(10_000);
+    Future<List<MemberTeamDto>> leader = executor.submit(
+            () -> singleFlight.execute("test", condition(null), null, blockingLoader(() -> members("stale"))));
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // 조회 도중 데이터가 바뀌었으면 새 호출은 바뀐 뒤의 값을 직접 읽는다
+    resultCache.invalidateAll();
+    assertThat(singleFlight.execute("test", condition(null), null, () -> members("fresh")))
+            .extracting("username").containsExactly("fresh");
+    assertThat(singleFlight.getFollowerCount()).isZero();
+
+    release.countDown();
+    assertThat(leader.get(10, TimeUnit.SECONDS)).extracting("username").containsExactly("stale");
+  }
+
+  @Test
+  public void followerStopsWaitingAfterTimeout() throws Exception {
+    MemberSearchSingleFlight singleFlight = singleFlight(50);
+    executor.submit(() -> singleFlight.execute("test", condition(null), null, blockingLoader(ArrayList::new)));
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(singleFlight.execute("test", condition(null), null, () -> members("own")))
+            .extracting("username").containsExactly("own");
+    assertThat(singleFlight.getTimeoutCount()).isEqualTo(1);
+  }
+
+  private MemberSearchSingleFlight singleFlight(long waitTimeoutMillis) {
+    return new MemberSearchSingleFlight(new SimpleMeterRegistry(), resultCache, waitTimeoutMillis);
+  }
+
+  // started 를 알리고 release 될 때까지 막혀 있는 loader
+  private Supplier<List<MemberTeamDto>> blockingLoader(Supplier<List<MemberTeamDto>> result) {
+    return () -> {
+      loads.incrementAndGet();
+      started.countDown();
+      try {
+        release.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return result.get();
+    };
+  }
+
+  private static void awaitFollowers(MemberSearchSingleFlight singleFlight, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (singleFlight.getFollowerCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static List<MemberTeamDto> members(String username) {
+    List<MemberTeamDto> members = new ArrayList<>();
+    members.add(new MemberTeamDto(1L, username, 40, 2L, "teamB"));
+    return members;
+  }
+
+  private static MemberSearchCondition condition(String username) {
+    MemberSearchCondition condition = new MemberSearchCondition();
+    condition.setUsername(username);
+    condition.setTeamName("teamB");
+    condition.setAgeGoe(31);
+    return condition;
+  }
+}
@@ -0,0 +1,39 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class QueryPlanChurnMonitorTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  QueryPlanChurnMonitor monitor;
+
+  @Test
+  public void growthStreak() {
+    monitor.check();
+
+    // 상수를 JPQL 에 직접 넣으면 매번 다른 문자열 = 새 플랜
+    for (int i = 0; i < 3; i++) {
+      em.createQuery("select m from Member m where m.age > " + (1000 + i), Member.class).getResultList();
+      monitor.check();
+    }
+    assertThat(monitor.getGrowthStreak()).isEqualTo(3);
+
+    // 같은 JPQL 을 반복하면 더 늘어나지 않는다
+    em.createQuery("select m from Member m where m.age > 1000", Member.class).getResultList();
+    monitor.check();
+    assertThat(monitor.getGrowthStreak()).isZero();
+  }
+}
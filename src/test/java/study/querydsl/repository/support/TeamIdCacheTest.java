@@ -0,0 +1,127 @@
+package study.querydsl.repository.support;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 사전은 커밋된 팀만 읽고 쓰기 트랜잭션 안에서는 쓰지 않으므로 테스트 트랜잭션 없이 실행한다.
+ * Team 이 바뀌면 별도 스레드에서 다시 읽으므로 조회 결과는 awaitId 로 기다린다.
+ */
+@SpringBootTest
+class TeamIdCacheTest {
+
+  @Autowired
+  EntityManager em;
+
+  @Autowired
+  PlatformTransactionManager transactionManager;
+
+  @Autowired
+  TeamIdCache teamIdCache;
+
+  TransactionTemplate transactionTemplate;
+  Long teamAId;
+
+  @BeforeEach
+  public void before() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+    teamAId = transactionTemplate.execute(status -> {
+      Team teamA = new Team("teamA");
+      em.persist(teamA);
+      em.persist(new Team("dup"));
+      em.persist(new Team("dup"));
+      return teamA.getId();
+    });
+  }
+
+  @AfterEach
+  public void after() {
+    transactionTemplate.execute(status -> {
+      em.createQuery("delete from Member").executeUpdate();
+      em.createQuery("delete from Team").executeUpdate();
+      return null;
+    });
+  }
+
+  @Test
+  public void hitWithoutReload() throws Exception {
+    assertThat(awaitId("teamA")).isEqualTo(teamAId);
+    long reloads = teamIdCache.getReloadCount();
+
+    assertThat(teamIdCache.findId("teamA")).isEqualTo(teamAId);
+    assertThat(teamIdCache.getReloadCount()).isEqualTo(reloads);
+  }
+
+  @Test
+  public void unknownOrDuplicatedName() throws Exception {
+    assertThat(awaitId("teamA")).isEqualTo(teamAId);
+
+    assertThat(teamIdCache.findId("noSuchTeam")).isNull();
+    assertThat(teamIdCache.findId("dup")).isNull();
+  }
+
+  @Test
+  public void invalidatedOnTeamChange() throws Exception {
+    assertThat(awaitId("teamA")).isEqualTo(teamAId);
+
+    transactionTemplate.execute(status -> {
+      em.find(Team.class, teamAId).setName("teamB");
+      return null;
+    });
+
+    // 다시 읽는 동안에도 바뀌기 전 id 를 돌려주지 않는다
+    assertThat(teamIdCache.findId("teamA")).isNull();
+    assertThat(awaitId("teamB")).isEqualTo(teamAId);
+    assertThat(teamIdCache.findId("teamA")).isNull();
+  }
+
+  @Test
+  public void concurrentLookupsDoNotBlockAndReloadOnce() throws Exception {
+    assertThat(awaitId("teamA")).isEqualTo(teamAId);
+    teamIdCache.invalidate();
+    long reloads = teamIdCache.getReloadCount();
+
+    // 다시 읽는 중에는 기다리지 않고 null(join) 또는 새로 읽은 id 를 받는다
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<Long>> lookups = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        lookups.add(() -> teamIdCache.findId("teamA"));
+      }
+      for (Future<Long> result : executor.invokeAll(lookups, 10, TimeUnit.SECONDS)) {
+        assertThat(result.get()).isIn(null, teamAId);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertThat(awaitId("teamA")).isEqualTo(teamAId);
+    assertThat(teamIdCache.getReloadCount()).isEqualTo(reloads + 1);
+  }
+
+  // 백그라운드 다시 읽기가 끝날 때까지 조회한다
+  private Long awaitId(String teamName) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    Long id;
+    while ((id = teamIdCache.findId(teamName)) == null && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    return id;
+  }
+}